@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Matrix in the max-plus algebra kept outside of the Java heap
+ * (Foreign Memory API, Java 22), for dimensions where double[dim][dim]
+ * does not fit to the heap or the GC spends too much time on it.
+ * The values are saved row by row in one {@link MemorySegment}, either
+ * allocated in an {@link Arena} or mapped from a file.
+ * The memory lives as long as its arena - a matrix created by
+ * {@link #allocate(int)} or {@link #map(Path, int)} owns its arena and frees
+ * it in {@link #close()}, the results of the operations are allocated
+ * in the arena given by the caller, so a whole computation can be freed at once.
+ * The kernels are the same as of {@link Semiring#MAX_PLUS}.
+ * It needs Java 22, so it is kept apart from the other sources
+ * (see README.md how to build it).
+ */
+public class OffHeapMatrix implements AutoCloseable {
+	private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+
+	private final int dim;
+	private final MemorySegment segment;
+	// the arena owned by the matrix, null if the memory belongs to the caller
+	private final Arena arena;
+
+	private OffHeapMatrix(int dim, MemorySegment segment, Arena arena){
+		this.dim = dim;
+		this.segment = segment;
+		this.arena = arena;
+	}
+
+	/**
+	 * Creates a matrix in the given arena, the values are 0.
+	 * The matrix is freed together with the arena.
+	 * @param dimension dimension of the matrix
+	 * @param arena the arena to allocate the matrix in
+	 */
+	public OffHeapMatrix(int dimension, Arena arena){
+		this(dimension, arena.allocate(bytes(dimension), DOUBLE.byteAlignment()), null);
+	}
+
+	/**
+	 * Creates a matrix with its own arena, it has to be closed.
+	 * @param dimension dimension of the matrix
+	 * @return the matrix, the values are 0
+	 */
+	public static OffHeapMatrix allocate(int dimension){
+		Arena arena = Arena.ofShared();
+		return new OffHeapMatrix(dimension,
+				arena.allocate(bytes(dimension), DOUBLE.byteAlignment()), arena);
+	}
+
+	/**
+	 * Maps the matrix from a file, the file is created if it does not exist.
+	 * The changes are written to the file, the matrix has to be closed.
+	 * @param file the file with the values, row by row (native byte order)
+	 * @param dimension dimension of the matrix
+	 * @return the matrix
+	 * @throws IOException when the file can not be mapped
+	 * @throws IllegalArgumentException when the file is not empty
+	 * and does not hold a matrix of the given dimension
+	 */
+	public static OffHeapMatrix map(Path file, int dimension) throws IOException{
+		Arena arena = Arena.ofShared();
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)){
+			long size = channel.size();
+			if(size != 0 && size != bytes(dimension)){
+				throw new IllegalArgumentException("The file has " + size
+						+ " bytes, a matrix of dimension " + dimension + " has " + bytes(dimension));
+			}
+			MemorySegment segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+					bytes(dimension), arena);
+			return new OffHeapMatrix(dimension, segment, arena);
+		}catch(IOException | RuntimeException e){
+			arena.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Copies the matrix from the heap to the given arena.
+	 * @param mtx the matrix to copy
+	 * @param arena the arena to allocate the matrix in
+	 * @return the copy of the matrix
+	 */
+	public static OffHeapMatrix of(Matrix mtx, Arena arena){
+		int dim = mtx.getDimension();
+		OffHeapMatrix copy = new OffHeapMatrix(dim, arena);
+		double[][] matrix = mtx.getMatrix();
+
+		for(int i=0;i<dim;i++){
+			MemorySegment.copy(matrix[i], 0, copy.segment, DOUBLE, copy.offset(i, 0), dim);
+		}
+		return copy;
+	}
+
+	private static long bytes(int dimension){
+		return (long) dimension * dimension * DOUBLE.byteSize();
+	}
+
+	private long offset(int vertex1, int vertex2){
+		return ((long) vertex1 * dim + vertex2) * DOUBLE.byteSize();
+	}
+
+	/**
+	 * Returns the set up dimension of the matrix.
+	 * @return dimension of the matrix
+	 */
+	public int getDimension(){
+		return dim;
+	}
+
+	/**
+	 * Returns the memory with the values, row by row.
+	 * @return the segment of the matrix
+	 */
+	public MemorySegment getSegment(){
+		return segment;
+	}
+
+	/**
+	 * Returns the value of the edge directed from vertex1 to vertex2
+	 * @param vertex1 start vertex
+	 * @param vertex2 end vertex
+	 * @return The weight of the edge from vertex1 to vertex2
+	 */
+	public double getValueOf(int vertex1, int vertex2){
+		checkIndex(vertex1, vertex2);
+		return segment.getAtIndex(DOUBLE, (long) vertex1 * dim + vertex2);
+	}
+
+	/**
+	 * Sets the value of the edge directed from vertex1 to vertex2
+	 * @param vertex1 start vertex
+	 * @param vertex2 end vertex
+	 * @param value - value to be set.
+	 */
+	public void setValue(int vertex1, int vertex2, double value){
+		checkIndex(vertex1, vertex2);
+		segment.setAtIndex(DOUBLE, (long) vertex1 * dim + vertex2, value);
+	}
+
+	/**
+	 * Checks both the vertices, as the values are saved in one segment
+	 * a wrong vertex2 would read another row instead of failing.
+	 * @param vertex1 start vertex
+	 * @param vertex2 end vertex
+	 */
+	private void checkIndex(int vertex1, int vertex2){
+		if(vertex1 < 0 || vertex1 >= dim){
+			throw new ArrayIndexOutOfBoundsException(
+					"Index " + vertex1 + " out of bounds for length " + dim);
+		}
+		if(vertex2 < 0 || vertex2 >= dim){
+			throw new ArrayIndexOutOfBoundsException(
+					"Index " + vertex2 + " out of bounds for length " + dim);
+		}
+	}
+
+	/**
+	 * Copies the matrix to the heap.
+	 * @return the copy of the matrix
+	 */
+	public Matrix toMatrix(){
+		Matrix mtx = new Matrix(dim);
+		double[][] matrix = mtx.getMatrix();
+
+		for(int i=0;i<dim;i++){
+			MemorySegment.copy(segment, DOUBLE, offset(i, 0), matrix[i], 0, dim);
+		}
+		return mtx;
+	}
+
+	/**
+	 * Multiplies the matrix with another one, this*other.
+	 * @param other the multiplier matrix
+	 * @param arena the arena to allocate the result in
+	 * @return the product of the matrices
+	 * @throws IllegalArgumentException when the dimensions differ
+	 */
+	public OffHeapMatrix multiply(OffHeapMatrix other, Arena arena){
+		if(other.dim != dim){
+			throw new IllegalArgumentException("Can not multiply matrices of dimensions "
+					+ dim + " and " + other.dim);
+		}
+		OffHeapMatrix product = new OffHeapMatrix(dim, arena);
+		MemorySegment m1 = segment, m2 = other.segment, mtx = product.segment;
+
+		for(int i=0;i<dim;i++){
+			long row = (long) i * dim;
+			double a = m1.getAtIndex(DOUBLE, row);
+			for(int j=0;j<dim;j++){
+				mtx.setAtIndex(DOUBLE, row + j, a + m2.getAtIndex(DOUBLE, j));
+			}
+			for(int k=1;k<dim;k++){
+				a = m1.getAtIndex(DOUBLE, row + k);
+				long m2Row = (long) k * dim;
+				for(int j=0;j<dim;j++){
+					double value = a + m2.getAtIndex(DOUBLE, m2Row + j);
+					if(mtx.getAtIndex(DOUBLE, row + j) < value){
+						mtx.setAtIndex(DOUBLE, row + j, value);
+					}
+				}
+			}
+			for(int j=0;j<dim;j++){
+				if(mtx.getAtIndex(DOUBLE, row + j) < -10000){
+					mtx.setAtIndex(DOUBLE, row + j, Matrix.EPS);
+				}
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Counts the definite matrix by subtracting the eigenvalue
+	 * from the matrix.
+	 * @param eigVal the eigenvalue of the matrix
+	 * @param arena the arena to allocate the result in
+	 * @return the definite matrix
+	 */
+	public OffHeapMatrix getDefMatrix(double eigVal, Arena arena){
+		OffHeapMatrix defMatrix = new OffHeapMatrix(dim, arena);
+		long size = (long) dim * dim;
+
+		for(long p=0;p<size;p++){
+			defMatrix.segment.setAtIndex(DOUBLE, p, segment.getAtIndex(DOUBLE, p) - eigVal);
+		}
+		return defMatrix;
+	}
+
+	/**
+	 * Floyd-Warshall algorithm, rewrites the matrix with the weights
+	 * of the best paths between every two vertices.
+	 */
+	public void closure(){
+		for(int i=0;i<dim;i++){
+			long iRow = (long) i * dim;
+			for(int k=0;k<dim;k++){
+				if(k == i){
+					continue;
+				}
+				long kRow = (long) k * dim;
+				double ki = segment.getAtIndex(DOUBLE, kRow + i);
+				for(int j=0;j<dim;j++){
+					if(j != i){
+						double value = ki + segment.getAtIndex(DOUBLE, iRow + j);
+						segment.setAtIndex(DOUBLE, kRow + j,
+								Math.max(segment.getAtIndex(DOUBLE, kRow + j), value));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Floyd-Warshall algorithm on the definite matrix,
+	 * the result is counted directly in the given arena.
+	 * @param eigVal the eigenvalue of the matrix
+	 * @param arena the arena to allocate the result in
+	 * @return the weakly transitive closure
+	 */
+	public OffHeapMatrix getFWMatrix(double eigVal, Arena arena){
+		OffHeapMatrix fwMatrix = getDefMatrix(eigVal, arena);
+
+		fwMatrix.closure();
+		return fwMatrix;
+	}
+
+	/**
+	 * Writes the changes of a mapped matrix to its file.
+	 */
+	public void force(){
+		if(segment.isMapped()){
+			segment.force();
+		}
+	}
+
+	/**
+	 * Frees the memory of the matrix if it owns its arena,
+	 * a matrix allocated in the arena of the caller is freed with that arena.
+	 */
+	@Override
+	public void close(){
+		if(arena != null){
+			arena.close();
+		}
+	}
+}
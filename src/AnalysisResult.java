@@ -0,0 +1,93 @@
+/**
+ * Results of the analysis of a matrix - the eigenvalue,
+ * the weakly transitive closure (Floyd-Warshall matrix) and
+ * the eigenspace with its independent bases.
+ * The result is shared (e.g. by {@link ResultCache}), so the getters
+ * return copies of the arrays. The arrays given to the constructor
+ * are not copied, they must not be changed later.
+ */
+public class AnalysisResult {
+	private final double eigenValue;
+	private final double[][] closure;
+	private final EigenSpace eigenSpace;
+
+	/**
+	 * Creates the result from already counted values.
+	 * @param eigenValue the eigenvalue of the matrix
+	 * @param closure the weakly transitive closure
+	 * @param eigenSpace the eigenspace
+	 */
+	public AnalysisResult(double eigenValue, double[][] closure, EigenSpace eigenSpace){
+		this.eigenValue = eigenValue;
+		this.closure = closure;
+		this.eigenSpace = eigenSpace;
+	}
+
+	/**
+	 * Analyses the matrix - counts its eigenvalue, the closure and chooses
+	 * the independent ones from the fundamental vectors.
+	 * @param mtx the matrix to analyse
+	 * @return the results of the analysis
+	 */
+	public static AnalysisResult analyse(Matrix mtx){
+		double eigVal = new KarpAlgorithm(mtx).getEigenValue();
+		double[][] closure = mtx.getFWMatrix(eigVal);
+
+		return new AnalysisResult(eigVal, closure, mtx.getEigenSpaceOf(closure));
+	}
+
+	/**
+	 * Returns the eigenvalue of the matrix.
+	 * @return the eigenvalue
+	 */
+	public double getEigenValue(){
+		return eigenValue;
+	}
+
+	/**
+	 * Returns a copy of the weakly transitive closure of the definite matrix.
+	 * @return the closure as a 2d array
+	 */
+	public double[][] getClosure(){
+		double[][] copy = new double[closure.length][];
+		for(int i=0;i<closure.length;i++){
+			copy[i] = closure[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the weight of the best path from vertex1 to vertex2
+	 * in the closure, without copying it.
+	 * @param vertex1 start vertex
+	 * @param vertex2 end vertex
+	 * @return the value of the closure
+	 */
+	public double getClosureValue(int vertex1, int vertex2){
+		return closure[vertex1][vertex2];
+	}
+
+	/**
+	 * Returns the eigenspace of the matrix.
+	 * @return the eigenspace
+	 */
+	public EigenSpace getEigenSpace(){
+		return eigenSpace;
+	}
+
+	/**
+	 * Returns a copy of the independent bases of the eigenspace.
+	 * @return the bases, one vector per row
+	 */
+	public double[][] getBases(){
+		return eigenSpace.getBases();
+	}
+
+	/**
+	 * Returns the columns of the closure the bases were taken from.
+	 * @return indices of the critical nodes
+	 */
+	public int[] getCriticalNodes(){
+		return eigenSpace.getCriticalNodes();
+	}
+}
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+
+/**
+ * Eigenspace of a matrix given by its independent bases.
+ * Every base is a column of the weakly transitive closure belonging
+ * to a critical node, it is labeled Δk by its order among
+ * the fundamental vectors (k = 1, 2, ...).
+ * The eigenspace is written as
+ * V(A) = { α⊗Δ1 ⊕ β⊗Δ2 ... , α, β ... ∈ ℝ* },
+ * the coefficients after θ are numbered (α1, β1, ...).
+ * The eigenspace may be shared (e.g. by {@link ResultCache}), so the getters
+ * return copies of the arrays.
+ */
+public class EigenSpace {
+	private static final String[] ABC = {"α", "β", "γ", "δ", "ζ", "η", "θ"};
+
+	private final double[][] bases;
+	private final int[] criticalNodes;
+	private final int[] labels;
+
+	/**
+	 * Creates the eigenspace from already independent bases,
+	 * the arrays are not copied.
+	 * @param bases the independent bases, one vector per row
+	 * @param criticalNodes the columns of the closure the bases were taken from,
+	 * -1 where it is not known
+	 * @param labels the numbers of the bases among the fundamental vectors, from 1
+	 */
+	public EigenSpace(double[][] bases, int[] criticalNodes, int[] labels){
+		this.bases = bases;
+		this.criticalNodes = criticalNodes;
+		this.labels = labels;
+	}
+
+	/**
+	 * Chooses the independent vectors from the fundamental vectors.
+	 * A vector is taken when it is independent of all the vectors taken before.
+	 * @param mtx the matrix the vectors belong to
+	 * @param fundVectors the fundamental vectors
+	 * @param nodes the columns of the closure the vectors were taken from
+	 * @return the eigenspace
+	 */
+	public static EigenSpace of(Matrix mtx, double[][] fundVectors, int[] nodes){
+		ArrayList<Integer> chosen = new ArrayList<>();
+
+		for(int i=0;i<fundVectors.length;i++){
+			boolean independency = true;
+			for(int j=0;j<chosen.size() && independency;j++){
+				int base = chosen.get(j);
+				independency = differAt(fundVectors[base], fundVectors[i], nodes[base])
+						|| differAt(fundVectors[base], fundVectors[i], nodes[i])
+						|| mtx.areIndependent(fundVectors[base], fundVectors[i]);
+			}
+			if(independency){
+				chosen.add(i);
+			}
+		}
+
+		double[][] bases = new double[chosen.size()][];
+		int[] criticalNodes = new int[chosen.size()];
+		int[] labels = new int[chosen.size()];
+		for(int i=0;i<bases.length;i++){
+			int index = chosen.get(i);
+			bases[i] = fundVectors[index];
+			criticalNodes[i] = nodes[index];
+			labels[i] = index + 1;
+		}
+		return new EigenSpace(bases, criticalNodes, labels);
+	}
+
+	/**
+	 * Checks whether the difference of the vectors at the position is not
+	 * the same as at the first position, i.e. they are surely independent.
+	 * The vectors from different critical nodes usually differ at these nodes,
+	 * so most of the pairs are decided without going through the whole vectors.
+	 * @param d1 vector1
+	 * @param d2 vector2
+	 * @param position the position to check, -1 if there is none
+	 * @return true if the vectors are independent, false if it is not known
+	 */
+	private static boolean differAt(double[] d1, double[] d2, int position){
+		return position > 0 && d1.length > 1
+				&& !Matrix.isSame(d1[position] - d2[position], d1[0] - d2[0]);
+	}
+
+	/**
+	 * Returns the number of independent bases (dimension of the eigenspace).
+	 * @return the number of bases
+	 */
+	public int size(){
+		return bases.length;
+	}
+
+	/**
+	 * Returns a copy of the independent bases.
+	 * @return the bases, one vector per row
+	 */
+	public double[][] getBases(){
+		double[][] copy = new double[bases.length][];
+		for(int i=0;i<bases.length;i++){
+			copy[i] = bases[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the value of the base at the vertex, without copying the bases.
+	 * @param i index of the base
+	 * @param vertex the vertex
+	 * @return the value of the base
+	 */
+	public double getValueOf(int i, int vertex){
+		return bases[i][vertex];
+	}
+
+	/**
+	 * Returns the columns of the closure the bases were taken from.
+	 * @return indices of the critical nodes, -1 where it is not known
+	 */
+	public int[] getCriticalNodes(){
+		return criticalNodes.clone();
+	}
+
+	/**
+	 * Returns the label of the base, e.g. "Δ3".
+	 * @param i index of the base
+	 * @return the label of the base
+	 */
+	public String getLabel(int i){
+		return "Δ" + labels[i];
+	}
+
+	/**
+	 * Returns the numbers of the bases among the fundamental vectors.
+	 * @return the numbers, from 1
+	 */
+	public int[] getLabels(){
+		return labels.clone();
+	}
+
+	/**
+	 * Returns the name of the coefficient of the base:
+	 * α, β, γ, δ, ζ, η, θ, then α1, β1, ... θ1, α2 ...
+	 * @param i index of the base
+	 * @return the name of the coefficient
+	 */
+	public static String getCoefficient(int i){
+		if(i < ABC.length){
+			return ABC[i];
+		}
+		return ABC[i % ABC.length] + (i / ABC.length);
+	}
+
+	/**
+	 * Writes the eigenspace to the output, base after base,
+	 * so no long String is built.
+	 * @param out where to write the eigenspace
+	 * @throws IOException when the output fails
+	 */
+	public void writeTo(Appendable out) throws IOException{
+		out.append("V(A) = { ");
+		for(int i=0;i<bases.length;i++){
+			if(i != 0){
+				out.append("⊕ ");
+			}
+			out.append(getCoefficient(i)).append("⊗Δ").append(Integer.toString(labels[i]))
+					.append(' ');
+		}
+		for(int i=0;i<bases.length;i++){
+			out.append(", ").append(getCoefficient(i));
+		}
+		out.append(" ∈ ℝ* }");
+	}
+
+	/**
+	 * Returns the eigenspace as a String.
+	 * @return String representing the eigenspace
+	 */
+	@Override
+	public String toString(){
+		StringBuilder sb = new StringBuilder(16 * bases.length + 32);
+		try{
+			writeTo(sb);
+		}catch(IOException e){
+			// StringBuilder does not throw
+			throw new UncheckedIOException(e);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * Finds one eigenvector of a matrix in the max-plus algebra without
+ * counting the whole Floyd-Warshall closure.
+ * It starts from the unit vector of a vertex on the critical cycle
+ * (got from {@link KarpAlgorithm}) and applies the definite matrix
+ * to it, x = x ⊕ D*x, until the vector does not change.
+ * The critical vertex keeps its value 0 and the increases smaller than
+ * the rounding errors are ignored, because for a non-dyadic eigenvalue
+ * (e.g. 4/3) the critical cycles of the definite matrix do not have
+ * the weight exactly 0 and the values would grow forever.
+ * The result is the column of the closure belonging to the critical vertex,
+ * i.e. a fundamental eigenvector. Only the finite values of the matrix are
+ * visited, so for a graph with m arcs a step costs O(m) instead of O(n^2).
+ * When it does not stabilize, the closure is used instead.
+ */
+public class EigenVectorSolver {
+	/**
+	 * Relative increase of a value which is taken as a rounding error.
+	 * It is far below {@link Matrix#TOLERANCE} the result is checked with,
+	 * so the ignored increases can not make the vector fail the check.
+	 */
+	private static final double TOLERANCE = Matrix.TOLERANCE / 1000;
+
+	private Matrix mtx;
+	private int dim;
+	private double eigVal;
+	private int criticalVertex;
+	// the finite values of the definite matrix
+	private SparseMatrix defMatrix;
+
+	/**
+	 * Creates the solver and counts the eigenvalue of the matrix.
+	 * @param mtx the matrix in the max-plus algebra
+	 */
+	public EigenVectorSolver(Matrix mtx){
+		if(mtx.getSemiring() != Semiring.MAX_PLUS){
+			throw new IllegalArgumentException(
+					"The eigenvector can be found only in the max-plus algebra");
+		}
+		this.mtx = mtx;
+		this.dim = mtx.getDimension();
+		KarpResult result = new KarpAlgorithm(mtx).getResult();
+		eigVal = result.getEigenValue();
+		criticalVertex = result.hasCycle() ? result.getCycle()[0] : -1;
+	}
+
+	/**
+	 * Returns the eigenvalue the eigenvector belongs to.
+	 * @return the eigenvalue of the matrix
+	 */
+	public double getEigenValue(){
+		return eigVal;
+	}
+
+	/**
+	 * Finds an eigenvector, at most dim+1 steps are done before
+	 * the closure is used.
+	 * @return the eigenvector, null if the matrix has no eigenvalue
+	 */
+	public double[] getEigenVector(){
+		return getEigenVector(dim + 1);
+	}
+
+	/**
+	 * Finds an eigenvector.
+	 * @param maxIterations the maximal number of steps before the closure is used
+	 * @return the eigenvector, null if the matrix has no eigenvalue
+	 */
+	public double[] getEigenVector(int maxIterations){
+		if(criticalVertex == -1){
+			return null;
+		}
+		double[] vector = new double[dim];
+		for(int i=0;i<dim;i++){
+			vector[i] = Matrix.EPS;
+		}
+		vector[criticalVertex] = 0;
+
+		if(defMatrix == null){
+			defMatrix = new SparseMatrix(mtx, eigVal);
+		}
+		if(iterate(vector, maxIterations) && mtx.isEigenVector(vector, eigVal)){
+			return vector;
+		}
+		return getClosureVector();
+	}
+
+	/**
+	 * Counts x = x ⊕ D*x until the vector does not change.
+	 * @param vector the starting vector, it is overwritten
+	 * @param maxIterations the maximal number of steps
+	 * @return true if the vector stabilized, else false
+	 */
+	private boolean iterate(double[] vector, int maxIterations){
+		double[] product = new double[dim];
+
+		for(int h=0;h<maxIterations;h++){
+			boolean changed = false;
+			defMatrix.multiply(vector, product);
+			for(int i=0;i<dim;i++){
+				if(i == criticalVertex){
+					continue; // the weight of its critical cycle is 0
+				}
+				if(product[i] - vector[i] > TOLERANCE * (1 + Math.abs(product[i]))){
+					vector[i] = product[i];
+					changed = true;
+				}
+			}
+			if(!changed){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the column of the weakly transitive closure belonging
+	 * to the critical vertex, it is a fundamental vector.
+	 * @return the eigenvector got from the closure
+	 */
+	private double[] getClosureVector(){
+		double[][] wtc = mtx.getFWMatrix(eigVal);
+		double[] vector = new double[dim];
+
+		for(int j=0;j<dim;j++){
+			vector[j] = wtc[j][criticalVertex];
+		}
+		return vector;
+	}
+}
@@ -446,8 +446,7 @@ public class Gui {
 	 */
 	public void showEigenSpace(){
 		double[][] wtc = mtx.getFWMatrix();
-		ArrayList<ArrayList<Double>> bases = mtx.getFundVectors(wtc);
-		eigenSpace.setText(mtx.getEigenSpace(bases));
+		eigenSpace.setText(mtx.getEigenSpaceOf(wtc).toString());
 		eigenSpace.setVisible(true);
 	}
 	
@@ -3,59 +3,334 @@ import java.util.ArrayList;
 /**
  * Karps algorithm to count the eigenvalue of a matrix.
  * It uses the column principle.
+ * In the max-plus algebra it is the maximal cycle mean,
+ * in the min-plus algebra the minimal one.
+ * While counting the columns it saves the vertices the paths go through,
+ * so a critical cycle is read from the best path in O(n).
+ * The columns and the vertices are kept while they take at most MAX_SAVED
+ * values, for bigger matrices only every interval-th column is kept and
+ * the others are counted again from it when they are needed, the vertices
+ * of the path one segment at a time (about three times the work),
+ * so the memory is O(n*sqrt(n)) instead of O(n^2).
+ * The weights of long paths would pass the bound of ε (e.g. 2500 arcs
+ * of weight -6), so a column whose best value is further than SHIFT from 0
+ * is moved back to 0 and the shift is added to the differences
+ * (the weights in one column still have to differ by less than 10000).
  * @author Hires, Gazda
  *
  */
 public class KarpAlgorithm {
-	private Matrix mtx;
+	/** Number of values of the columns which are all kept in the memory. */
+	private static final long MAX_SAVED = 1 << 22;
+	/** The best value of a column can be at most this far from 0 before it is shifted. */
+	private static final double SHIFT = 1000;
+
 	private double[][] matrix;
 	int dim;
-	
+	private Semiring semiring;
+	// saved[c][v] is the weight of the best path of length c*interval from v
+	private double[][] saved;
+	private int interval;
+	// the weights of the best paths of length dim
+	private double[] last;
+	// offset[k] is the shift of the column k, its weights are col[v] + offset[k]
+	private double[] offset;
+	// parents[k][v] is the vertex following v on the best path of length k,
+	// null when only every interval-th column is kept
+	private int[][] parents;
+	// the arcs of a sparse matrix, null for a dense one
+	private SparseMatrix sparse;
+	private Matrix mtx;
+
 	public KarpAlgorithm(Matrix mtx){
+		if(mtx.getSemiring() == Semiring.MAX_MIN){
+			throw new IllegalArgumentException(
+					"Karps algorithm needs a semiring with + as multiplication");
+		}
 		this.mtx = mtx;
 		this.matrix = mtx.getMatrix();
 		this.dim = mtx.getDimension();
+		this.semiring = mtx.getSemiring();
+	}
+
+	/**
+	 * Counts the columns A^k*e for k = 0, 1, ... dim, where e is the unit vector
+	 * (every path may end in any vertex), saving every interval-th of them.
+	 * For a sparse matrix only its arcs are visited,
+	 * so it is O(n*m) instead of O(n^3).
+	 */
+	private void countCols(){
+		if(last != null){
+			return;
+		}
+		interval = (long) (dim + 1) * dim <= MAX_SAVED ? 1
+				: (int) Math.ceil(Math.sqrt(dim + 1));
+		if(SparseMatrix.count(mtx) <= (long) dim * dim / 4){
+			// sparse matrix, only the arcs are visited
+			sparse = new SparseMatrix(mtx, 0);
+		}
+		saved = new double[(dim + interval - 1) / interval][];
+		if(interval == 1){
+			parents = new int[dim+1][];
+		}
+		offset = new double[dim+1];
+		double[] col = new double[dim];
+		for(int v=0;v<dim;v++){
+			col[v] = semiring.one();
+		}
+		// the column which is not saved is used for the next one
+		double[] spare = null;
+		for(int k=0;k<dim;k++){
+			double[] next = spare != null ? spare : new double[dim];
+			if(parents != null){
+				parents[k+1] = new int[dim];
+			}
+			multiply(col, next, parents != null ? parents[k+1] : null);
+			offset[k+1] = offset[k] + shift(next);
+			if(k % interval == 0){
+				saved[k / interval] = col;
+				spare = null;
+			}else{
+				spare = col;
+			}
+			col = next;
+		}
+		last = col;
+	}
+
+	/**
+	 * Counts the next column, y = A*x, saving the vertices
+	 * the paths continue to if arg is not null.
+	 */
+	private void multiply(double[] x, double[] y, int[] arg){
+		if(sparse == null){
+			if(arg == null){
+				semiring.multiplyVector(matrix, x, y, dim);
+			}else{
+				semiring.multiplyVector(matrix, x, y, arg, dim);
+			}
+		}else{
+			if(arg == null){
+				sparse.multiply(x, y);
+			}else{
+				sparse.multiply(x, y, arg);
+			}
+		}
+	}
+
+	/**
+	 * Returns the columns from the saved one to the next saved one.
+	 * @param c index of the saved column
+	 * @return the columns A^k*e for k = c*interval, ... (c+1)*interval - 1 (at most dim - 1)
+	 */
+	private double[][] getSegment(int c){
+		int from = c * interval;
+		double[][] segment = new double[Math.min(interval, dim - from)][];
+		segment[0] = saved[c];
+		for(int t=1;t<segment.length;t++){
+			segment[t] = new double[dim];
+			multiply(segment[t-1], segment[t], null);
+			shift(segment[t]);
+		}
+		return segment;
+	}
+
+	/**
+	 * Moves the column back to 0 if its best value is further than SHIFT from 0.
+	 * The columns counted again are shifted by the same value.
+	 * @param col the column to shift
+	 * @return the value subtracted from the finite values, 0 if none
+	 */
+	private double shift(double[] col){
+		boolean maxPlus = semiring == Semiring.MAX_PLUS;
+		double best = semiring.zero();
+		for(int v=0;v<dim;v++){
+			if(!semiring.isZero(col[v])
+					&& (semiring.isZero(best) || (maxPlus ? col[v] > best : col[v] < best))){
+				best = col[v];
+			}
+		}
+		if(semiring.isZero(best) || Math.abs(best) <= SHIFT){
+			return 0;
+		}
+		for(int v=0;v<dim;v++){
+			if(!semiring.isZero(col[v])){
+				col[v] -= best;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the vertices the best paths continue to, for the paths
+	 * of length c*interval + 1, ... (c+1)*interval (at most dim).
+	 * @param c index of the saved column the paths are counted from
+	 * @return the vertices following the first ones, the path of length k
+	 * is at (k-1) % interval
+	 */
+	private int[][] getParents(int c){
+		int from = c * interval;
+		int[][] segment = new int[Math.min(interval, dim - from)][dim];
+		// the saved column is not overwritten, two others take turns
+		double[][] buffers = {new double[dim], new double[dim]};
+		double[] col = saved[c];
+		for(int t=0;t<segment.length;t++){
+			double[] next = buffers[t % 2];
+			multiply(col, next, segment[t]);
+			shift(next);
+			col = next;
+		}
+		return segment;
 	}
-	
+
 	 /**
-     * This function returns a list of first columns of the matrices A, A^2, A^3, ... A^dim+1;
-     * @return list of the first columns of the powered matrices.
+     * This function returns a list of the columns A^k*e for k = 0, 1, ... dim;
+     * the k-th column holds the weights of the best paths of length k
+     * (before the virtual vertex e was used, these were the first columns
+     * of the matrices A^1, ... A^(dim+1)).
+     * The list has (dim+1)*dim values, for big matrices it is not needed
+     * by {@link #getResult()}, which keeps only a part of the columns.
+     * @return list of the columns of the powered matrices.
      */
     public ArrayList<ArrayList<Double>> getCols(){
-        // list to save the first columns of the powered matrices
-    	ArrayList<ArrayList<Double>> listOfCols = new ArrayList<>();  
-        for(int i=0;i<=dim;i++){
-        	ArrayList<Double> column = new ArrayList<>();
-    		listOfCols.add(column);
-        	for(int j=0;j<dim;j++){
-        		double value = mtx.powerMatrix(matrix, i+1)[j][0];
-        		listOfCols.get(i).add(value);
-        	}
-        }        
+    	ArrayList<ArrayList<Double>> listOfCols = new ArrayList<>();
+    	countCols();
+    	for(int c=0;c<saved.length;c++){
+    		double[][] segment = getSegment(c);
+    		for(int t=0;t<segment.length;t++){
+    			listOfCols.add(toList(segment[t], offset[c * interval + t]));
+    		}
+    	}
+    	listOfCols.add(toList(last, offset[dim]));
         return listOfCols;
-    }   
+    }
+
+    private ArrayList<Double> toList(double[] col, double shift){
+    	ArrayList<Double> column = new ArrayList<>(col.length);
+    	for(double value : col){
+    		column.add(semiring.isZero(value) || shift == 0 ? value : value + shift);
+    	}
+    	return column;
+    }
+
 
-      
      /**
-      * Calculates the eigenvalue of the matrix via column principle 
+      * Calculates the eigenvalue of the matrix via column principle
       * @return the eigenvalue of the matrix from the input
       */
      public double getEigenValue(){
-    	 ArrayList<Double> listOfMins = new ArrayList<>(); //list to save the minimum values 
-    	 // temporary list to save the values to get the minimum of
-    	 ArrayList<Double> temp = new ArrayList<>(); 
-    	 //adds the needed values(column principle) to the list to get the max of them 
+    	 return getResult().getEigenValue();
+     }
+
+     /**
+      * Calculates the eigenvalue of the matrix via column principle
+      * together with a critical cycle.
+      * The cycle is read from the best path of length dim starting in the vertex
+      * the eigenvalue was taken from, it is the cycle with the best mean on it.
+      * @return the eigenvalue and the critical cycle, if the matrix has no cycle
+      * the eigenvalue is ε and the cycle is empty
+      */
+     public KarpResult getResult(){
+    	 boolean maxPlus = semiring == Semiring.MAX_PLUS;
+    	 double eigVal = semiring.zero();
+    	 int bestVertex = -1;
+
+    	 countCols();
+    	 // the worst mean (D_dim(i) - D_j(i)) / (dim - j) for every vertex
+    	 double[] worst = new double[dim];
+    	 boolean[] found = new boolean[dim];
+    	 for(int c=0;c<saved.length;c++){
+    		 double[][] segment = getSegment(c);
+    		 for(int t=0;t<segment.length;t++){
+    			 double[] col = segment[t];
+    			 int k = dim - c * interval - t;
+    			 for(int i=0;i<dim;i++){
+    				 if(!semiring.isZero(col[i])){
+    					 double temp = (last[i] - col[i] + (offset[dim] - offset[dim - k])) / (k);
+    					 if(!found[i] || (maxPlus ? temp < worst[i] : temp > worst[i])){
+    						 worst[i] = temp;
+    						 found[i] = true;
+    					 }
+    				 }
+    			 }
+    		 }
+    	 }
     	 for(int i=0;i<dim;i++){
-    		 temp.clear(); 
-			 int k = dim;    		 
-    		 for(int j=0;j<dim;j++){
-				 temp.add((getCols().get(dim).get(i) - getCols().get(j).get(i)) / (k));  
-				 k--;
-     		 }
-    		 listOfMins.add(mtx.getMin(temp));    		 
-    	 } 	    	 
-		 return mtx.getMax(listOfMins);    	 
+    		 if(semiring.isZero(last[i])){
+    			 continue; // there is no cycle reachable from i
+    		 }
+    		 double value = found[i] ? worst[i] : 0;
+    		 if(bestVertex == -1 || (maxPlus ? value > eigVal : value < eigVal)){
+    			 eigVal = value;
+    			 bestVertex = i;
+    		 }
+    	 }
+
+    	 if(bestVertex == -1){
+    		 return new KarpResult(eigVal, new int[0]);
+    	 }
+    	 return new KarpResult(eigVal, getCycle(bestVertex));
+     }
+
+     /**
+      * Finds the cycle with the best mean on the best path of length dim
+      * from the given vertex. The path is split to cycles as it is walked,
+      * so it is done in O(dim) (when only every interval-th column is kept,
+      * the vertices of the path are counted again one segment at a time).
+      * @param start the first vertex of the path
+      * @return vertices of the best cycle on the path
+      */
+     private int[] getCycle(int start){
+    	 boolean maxPlus = semiring == Semiring.MAX_PLUS;
+    	 int[] stack = new int[dim+1];
+    	 int[] position = new int[dim];
+    	 int top = 0;
+    	 double bestMean = 0;
+    	 int[] best = new int[0];
+
+    	 for(int v=0;v<dim;v++){
+    		 position[v] = -1;
+    	 }
+    	 int v = start;
+    	 int[][] segment = null;
+    	 for(int k=dim;k>=0;k--){
+    		 if(position[v] != -1){
+    			 // the path closed a cycle, it is on the top of the stack
+    			 int from = position[v];
+    			 double weight = 0;
+    			 for(int i=from;i<top;i++){
+    				 int next = i+1 < top ? stack[i+1] : v;
+    				 weight += matrix[stack[i]][next];
+    			 }
+    			 double mean = weight / (top - from);
+    			 if(best.length == 0 || (maxPlus ? mean > bestMean : mean < bestMean)){
+    				 bestMean = mean;
+    				 best = new int[top - from];
+    				 System.arraycopy(stack, from, best, 0, top - from);
+    			 }
+    			 for(int i=from+1;i<top;i++){
+    				 position[stack[i]] = -1;
+    			 }
+    			 top = from + 1;
+    		 }else{
+    			 position[v] = top;
+    			 stack[top++] = v;
+    		 }
+    		 if(k > 0){
+    			 if(parents != null){
+    				 v = parents[k][v];
+    			 }else{
+    				 if((k - 1) % interval == interval - 1 || segment == null){
+    					 segment = getParents((k - 1) / interval);
+    				 }
+    				 v = segment[(k - 1) % interval][v];
+    			 }
+    		 }
+    	 }
+    	 if(semiring.isZero(bestMean)){
+    		 return new int[0];
+    	 }
+    	 return best;
      }
-     
 
 }
@@ -0,0 +1,60 @@
+/**
+ * Result of the Karps algorithm - the eigenvalue of the matrix
+ * together with a critical cycle, the cycle its mean is the eigenvalue.
+ */
+public class KarpResult {
+	private final double eigenValue;
+	private final int[] cycle;
+
+	/**
+	 * Creates the result.
+	 * @param eigenValue the eigenvalue of the matrix
+	 * @param cycle vertices of the critical cycle in the order of its arcs
+	 */
+	public KarpResult(double eigenValue, int[] cycle){
+		this.eigenValue = eigenValue;
+		this.cycle = cycle;
+	}
+
+	/**
+	 * Returns the eigenvalue (the maximal cycle mean in max-plus).
+	 * @return the eigenvalue of the matrix
+	 */
+	public double getEigenValue(){
+		return eigenValue;
+	}
+
+	/**
+	 * Returns the vertices of the critical cycle. The arcs go from
+	 * every vertex to the next one and from the last one to the first one.
+	 * @return the critical cycle, empty if the matrix has no cycle
+	 */
+	public int[] getCycle(){
+		return cycle;
+	}
+
+	/**
+	 * Checks whether a critical cycle was found.
+	 * @return true if there is a critical cycle, else false
+	 */
+	public boolean hasCycle(){
+		return cycle.length > 0;
+	}
+
+	/**
+	 * Returns the critical cycle as a String, e.g. "1 → 3 → 1".
+	 * The vertices are numbered from 1.
+	 * @return String representing the critical cycle
+	 */
+	@Override
+	public String toString(){
+		if(cycle.length == 0){
+			return "-";
+		}
+		StringBuilder sb = new StringBuilder();
+		for(int i=0;i<cycle.length;i++){
+			sb.append(cycle[i] + 1).append(" → ");
+		}
+		return sb.append(cycle[0] + 1).toString();
+	}
+}
@@ -1,8 +1,11 @@
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Represents a matrix and operations with matrices..
- * The operations are in the max-plus algebra. 
+ * The operations are in the max-plus algebra by default,
+ * other semirings can be chosen via {@link Semiring}.
  * Matrices are represented as 2d arrays.
  * 
  * @author Hires, Gazda
@@ -10,16 +13,39 @@ import java.util.ArrayList;
 public class Matrix {	
 		private int dim;		
 		static final double EPS = -100000;
+		// minimal number of vectors multiplied together by one thread
+		static final int BATCH_BLOCK = 128;
+		// relative difference of the values of the closure taken as a rounding error
+		static final double TOLERANCE = 1e-9;
 		private double[][] matrix;
 		private double eigVal;
+		private Semiring semiring;
 		
 		/**
-		 * Creates a matrix as a 2d array
+		 * Creates a matrix as a 2d array in the max-plus algebra
 		 * @param dimension Dimension of the matrix
 		 */
 	public Matrix(int dimension){   
+		this(dimension, Semiring.MAX_PLUS);
+	}
+	
+	/**
+	 * Creates a matrix as a 2d array in the given semiring
+	 * @param dimension Dimension of the matrix
+	 * @param semiring the semiring the operations are counted in
+	 */
+	public Matrix(int dimension, Semiring semiring){
 		dim = dimension; //dimension of the matrix
 		matrix = new double[dim][dim];
+		this.semiring = semiring;
+	}
+	
+	/**
+	 * Returns the semiring the operations are counted in
+	 * @return the semiring of the matrix
+	 */
+	public Semiring getSemiring(){
+		return semiring;
 	}
 	
 	/**
@@ -39,29 +65,42 @@ public class Matrix {
 	 * @return the reordered matrix with the less weighted paths
 	 */
 	public double[][] getFWMatrix(){
-		double shortPath = 0;
-		
 		KarpAlgorithm kA = new KarpAlgorithm(this);
-		eigVal = kA.getEigenValue();
+		return getFWMatrix(kA.getEigenValue());
+	}
+	
+	/**
+	 * Floyd-Warshall algorithm on the definite matrix counted
+	 * from the already known eigenvalue.
+	 *
+	 * @param eigVal the eigenvalue of the matrix
+	 * @return the reordered matrix with the less weighted paths
+	 */
+	public double[][] getFWMatrix(double eigVal){
+		this.eigVal = eigVal;
 		double[][] fwMatrix = getDefMatrix(eigVal);
-
 		
-		for(int i = 0;i < dim;i++){
-        	for(int j = 0;j < dim;j++){        		
-        		for(int k = 0;k < dim;k++){
-    				shortPath = Math.max( fwMatrix[k][j], 
-    						fwMatrix[k][i] + fwMatrix[i][j] );
-        			if(k == i || j == i){
-        				fwMatrix[k][j] = fwMatrix[k][j];        
-        			}else{
-						fwMatrix[k][j] = shortPath;    					
-    				}    					
-        		}
-        	}
-		}
+		semiring.closure(fwMatrix, dim);
 		return fwMatrix;
 	}
 	
+	/**
+	 * Floyd-Warshall algorithm on the matrix itself (without subtracting
+	 * the eigenvalue). In the min-plus algebra these are the shortest paths,
+	 * in the max-min algebra the widest (bottleneck) paths.
+	 *
+	 * @return the matrix with the best paths from-to every vertex
+	 */
+	public double[][] getClosure(){
+		double[][] closure = new double[dim][dim];
+		
+		for(int i=0;i<dim;i++){
+			System.arraycopy(matrix[i], 0, closure[i], 0, dim);
+		}
+		semiring.closure(closure, dim);
+		return closure;
+	}
+	
 	/**
 	 * Counts the Strongly Transitive Closure as 
 	 * (E + D)^n-1 [the D is the matrix we are working with]
@@ -75,11 +114,13 @@ public class Matrix {
 		for(int i=0;i<dim;i++){
 			for(int j=0;j<dim;j++){
 				if(i == j){ 
-					mtx[i][i] = 0;
-				}else if(defMatrix[i][j] > -10000){
+					mtx[i][i] = semiring.one();
+				}else if(semiring == Semiring.MAX_PLUS ? defMatrix[i][j] > -10000
+						: !semiring.isZero(defMatrix[i][j])){
+					// in the max-plus algebra -10000 itself is ε here, as it always was
 					mtx[i][j] = defMatrix[i][j];
 				}else{
-					mtx[i][j] = EPS;
+					mtx[i][j] = semiring.zero();
 				}
 			}
 		}
@@ -93,28 +134,57 @@ public class Matrix {
      * @return Matrix  m1*m2
      */
 	public double[][] multiplyMatrix(double[][] m1, double[][] m2){
-		double[][] mtx = new double[dim][dim];
-    	// temporary list to save the set of numbers we need the maximum of
-		ArrayList<Double> temp = new ArrayList<>();
-		
-    	 for (int i=0;i<dim;i++){
-             for (int j=0;j<dim;j++){   
-                for (int k=0;k<dim;k++){
-                    temp.add(m1[i][k] + m2[k][j]);
-                }
-                if(getMax(temp) < -10000){
-                	mtx[i][j] = EPS;
-                }else{
-                	mtx[i][j] = getMax(temp);
-                }              
-                temp.clear(); //resetting the list
-             }
-          }
-		return mtx; 
-		
+		return semiring.multiply(m1, m2, dim);
+	}
+	
+	/**
+	 * Multiplies the matrix with a vector, y = A*x.
+	 * Nothing is allocated, so it can be used in iterations.
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 */
+	public void multiplyVector(double[] x, double[] y){
+		semiring.multiplyVector(matrix, x, y, dim);
 	}
 	
 	
+	/**
+	 * Multiplies the matrix with many vectors at once, Y = A*X.
+	 * The vectors are the columns of X, saved row by row (x[k][c] is the value
+	 * of the vertex k in the vector c). The vectors are split to blocks, one
+	 * per processor (at least BATCH_BLOCK vectors each), counted in parallel.
+	 * Every row of the matrix is read once per block.
+	 * @param x the vectors, dim rows with the same number of columns
+	 * @return the results, dim rows, the column c is A*(column c of x)
+	 * @throws IllegalArgumentException if x does not have dim rows
+	 * of the same length
+	 */
+	public double[][] multiplyBatch(double[][] x){
+		if(x.length != dim){
+			throw new IllegalArgumentException(
+					"The vectors have " + x.length + " rows instead of " + dim);
+		}
+		int cnt = dim == 0 ? 0 : x[0].length;
+		for(int k=1;k<dim;k++){
+			if(x[k].length != cnt){
+				throw new IllegalArgumentException("The row " + k + " of the vectors has "
+						+ x[k].length + " values instead of " + cnt);
+			}
+		}
+		double[][] y = new double[dim][cnt];
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+		int width = Math.max(BATCH_BLOCK, (cnt + threads - 1) / threads);
+		int blocks = (cnt + width - 1) / width;
+		
+		IntStream range = IntStream.range(0, blocks);
+		if(blocks > 1){
+			range = range.parallel();
+		}
+		range.forEach(b -> semiring.multiplyBlock(matrix, x, y, dim,
+				b * width, Math.min(cnt, (b + 1) * width)));
+		return y;
+	}
+	
 	/**
 	 * Returns any needed value of the edge directed from vertex1 to vertex2
 	 * @param vertex1 start vertex
@@ -183,22 +253,52 @@ public class Matrix {
 	 * @return the powered matrix
 	 */
 	public double[][] powerMatrix(double[][] matrix, int power){
-		double[][] poweredMatrix = new double[dim][dim];
+		return semiring.power(matrix, power, dim);
+	}
+	
+	/**
+	 * Finds one eigenvector of the matrix by applying the definite matrix
+	 * to a vector until it stabilizes, without counting the whole closure.
+	 * @return the eigenvector, null if the matrix has no eigenvalue
+	 * @see EigenVectorSolver
+	 */
+	public double[] getEigenVector(){
+		return new EigenVectorSolver(this).getEigenVector();
+	}
+	
+	/**
+	 * Checks whether A*v = λ*v holds for the given vector.
+	 * The values are compared with a small tolerance,
+	 * a vector with all the values ε is not an eigenvector.
+	 * @param vector the vector to check
+	 * @param eigVal the eigenvalue λ
+	 * @return true if the vector is an eigenvector, else false
+	 */
+	public boolean isEigenVector(double[] vector, double eigVal){
+		double[] product = new double[dim];
+		boolean finite = false;
 		
-		for(int h=0;h<power-1;h++){
-			if( h == 0){
-				poweredMatrix = multiplyMatrix(matrix, matrix);
+		semiring.multiplyVector(matrix, vector, product, dim);
+		for(int i=0;i<dim;i++){
+			double expected = semiring.times(eigVal, vector[i]);
+			if(semiring.isZero(vector[i])){
+				if(!semiring.isZero(product[i])){
+					return false;
+				}
 			}else{
-				poweredMatrix = multiplyMatrix(poweredMatrix, matrix);
+				finite = true;
+				if(!isSame(product[i], expected)){
+					return false;
+				}
 			}
 		}
-		
-		return poweredMatrix;
+		return finite;
 	}
 	
 	/**
 	 * Saves all the fundamental vectors of the given matrix as a list to a list.
-	 * A column is a fundamental vector, when the diagonal value is 0.
+	 * A column is a fundamental vector, when the diagonal value is 0
+	 * (up to the rounding errors, e.g. for the eigenvalue 4/3).
 	 * @param weakly transitive closure
 	 * @return list of fundamental vectors as a nested list
 	 */
@@ -207,7 +307,7 @@ public class Matrix {
 		int cnt = 0;
 		
 		for(int i=0;i<dim;i++){
-			if(wtc[i][i] == 0){
+			if(isSame(wtc[i][i], 0)){
 				ArrayList<Double> vector = new ArrayList<>();
 				funVectors.add(vector);
 	        	for(int j=0;j<dim;j++){
@@ -225,21 +325,59 @@ public class Matrix {
 	 * @return String representing the eigenspace
 	 */
 	public String getEigenSpace(ArrayList<ArrayList<Double>> bases){
-		ArrayList<String> indepBases = getBases(bases);
-		String[] abc = {"α", "β", "γ", "δ", "ζ", "η", "θ"};
-		String eigenSpace = "V(A) = { ";
-		String ending = "";
-		for(int i=0;i<indepBases.size();i++){
-			if(i==0){
-				eigenSpace += abc[i] + "⊗" + indepBases.get(i) + " ";
-			}else{
-				eigenSpace += "⊕ " + abc[i] + "⊗" + indepBases.get(i) + " ";
-			}	
-			ending += ", " + abc[i];
-		}		
-		ending += " ∈ ℝ* }";
+		return toEigenSpace(bases).toString();
+	}
+	
+	/**
+	 * Returns the eigenspace of the matrix with its independent bases
+	 * taken from the fundamental vectors of the weakly transitive closure.
+	 * @param wtc weakly transitive closure
+	 * @return the eigenspace
+	 */
+	public EigenSpace getEigenSpaceOf(double[][] wtc){
+		int cnt = 0;
 		
-		return eigenSpace + ending;
+		for(int i=0;i<dim;i++){
+			if(isSame(wtc[i][i], 0)){
+				cnt++;
+			}
+		}
+		double[][] funVectors = new double[cnt][];
+		int[] nodes = new int[cnt];
+		cnt = 0;
+		for(int i=0;i<dim;i++){
+			if(isSame(wtc[i][i], 0)){
+				double[] vector = new double[dim];
+				for(int j=0;j<dim;j++){
+					vector[j] = wtc[j][i];
+				}
+				funVectors[cnt] = vector;
+				nodes[cnt++] = i;
+			}
+		}
+		return EigenSpace.of(this, funVectors, nodes);
+	}
+	
+	/**
+	 * Chooses the independent bases from the fundamental vectors given as lists.
+	 * The critical nodes of the bases are not known.
+	 * @param listOfFundamentalEigenVectors the fundamental vectors
+	 * @return the eigenspace
+	 */
+	private EigenSpace toEigenSpace(ArrayList<ArrayList<Double>> listOfFundamentalEigenVectors){
+		int size = listOfFundamentalEigenVectors.size();
+		double[][] funVectors = new double[size][];
+		int[] nodes = new int[size];
+		
+		for(int i=0;i<size;i++){
+			ArrayList<Double> list = listOfFundamentalEigenVectors.get(i);
+			funVectors[i] = new double[list.size()];
+			for(int j=0;j<list.size();j++){
+				funVectors[i][j] = list.get(j);
+			}
+			nodes[i] = -1;
+		}
+		return EigenSpace.of(this, funVectors, nodes);
 	}
 	
 	/**
@@ -256,7 +394,7 @@ public class Matrix {
 		if(d1.size() > 1){
 			dif = d1.get(0) - d2.get(0);
 			for(int i=1;i<dim;i++){			
-				if(d1.get(i) - d2.get(i) != dif){
+				if(!isSame(d1.get(i) - d2.get(i), dif)){
 					return true;
 				}
 			}
@@ -265,6 +403,36 @@ public class Matrix {
 		return areIndep;
 	}
 	
+	/**
+	 * Checks whether two vectors are independent or not.
+	 * 
+	 * @param d1 vector1 as an array of numbers
+	 * @param d2 vector2 as an array of numbers
+	 * @return true if they are independent, else false
+	 */
+	public boolean areIndependent(double[] d1, double[] d2){
+		if(d1.length > 1){
+			double dif = d1[0] - d2[0];
+			for(int i=1;i<dim;i++){
+				if(!isSame(d1[i] - d2[i], dif)){
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two values counted from the closure, the differences
+	 * smaller than the rounding errors are ignored.
+	 * @param a value1
+	 * @param b value2
+	 * @return true if the values are the same, else false
+	 */
+	static boolean isSame(double a, double b){
+		return Math.abs(a - b) <= TOLERANCE * (1 + Math.abs(b));
+	}
+	
 	/**
 	 * Checks which fundamental vectors are independent.
 	 * @param listOfFundamentalEigenVectors the list of 
@@ -273,26 +441,11 @@ public class Matrix {
 	 */
 	public ArrayList<String> getBases(ArrayList<ArrayList<Double>> listOfFundamentalEigenVectors){
 		ArrayList<String> independentBases = new ArrayList<>();
-		String base = "Δ";
-		int size = listOfFundamentalEigenVectors.size();
-		boolean independency = false;
+		EigenSpace eigenSpace = toEigenSpace(listOfFundamentalEigenVectors);
 		
-		ArrayList<ArrayList<Double>> indBases = new ArrayList<>();
-		indBases.add(listOfFundamentalEigenVectors.get(0));
-		independentBases.add(base + (1));
-		for(int i = 1; i < size; i++) {
-			independency = true;
-			for(int j = 0; j < indBases.size(); j++) {
-				if(!areIndependent(indBases.get(j), listOfFundamentalEigenVectors.get(i))) {
-					independency = false;
-				}
-			}
-			if(independency){
-				indBases.add(listOfFundamentalEigenVectors.get(i));
-				independentBases.add(base + (i+1));
-			}
+		for(int i=0;i<eigenSpace.size();i++){
+			independentBases.add(eigenSpace.getLabel(i));
 		}
-		
 		return independentBases;
 	}
 	
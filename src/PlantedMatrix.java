@@ -0,0 +1,265 @@
+import java.util.Random;
+
+/**
+ * Generator of matrices with a known (planted) eigenvalue, critical graph
+ * and dimension of the eigenspace.
+ * Disjoint cycles are planted with all the arcs of weight λ, every other arc
+ * is lighter than λ. So every cycle with an other arc has a smaller mean,
+ * the critical graph consists exactly of the planted cycles and the eigenspace
+ * has one independent base per planted cycle.
+ * The weights are integers or multiples of 1/64, so they are counted exactly,
+ * except the rational kinds, whose eigenvalue (e.g. 4/3) is not a binary
+ * fraction and has to be compared with a tolerance.
+ */
+public class PlantedMatrix {
+	private final String kind;
+	private final Matrix matrix;
+	private final double eigenValue;
+	private final int[][] cycles;
+	private final boolean[][] critical;
+
+	private PlantedMatrix(String kind, Matrix matrix, double eigenValue, int[][] cycles){
+		this.kind = kind;
+		this.matrix = matrix;
+		this.eigenValue = eigenValue;
+		this.cycles = cycles;
+		int dim = matrix.getDimension();
+		critical = new boolean[dim][];
+		for(int[] cycle : cycles){
+			for(int i=0;i<cycle.length;i++){
+				if(critical[cycle[i]] == null){
+					critical[cycle[i]] = new boolean[dim];
+				}
+				critical[cycle[i]][cycle[(i+1) % cycle.length]] = true;
+			}
+		}
+	}
+
+	/**
+	 * Dense matrix, all the arcs are present.
+	 * @param dim dimension of the matrix
+	 * @param cycleCnt number of critical cycles
+	 * @param random the random generator
+	 * @return the generated matrix
+	 */
+	public static PlantedMatrix dense(int dim, int cycleCnt, Random random){
+		double eigVal = random.nextInt(21) - 10;
+		Matrix mtx = new Matrix(dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx.setValue(i, j, eigVal - 1 - random.nextInt(20));
+			}
+		}
+		return plant("dense", mtx, eigVal, 0, 0, dim, cycleCnt, random);
+	}
+
+	/**
+	 * Sparse matrix - a ring through all the vertices (so it is irreducible)
+	 * and a few random arcs from every vertex.
+	 * @param dim dimension of the matrix
+	 * @param degree number of random arcs from every vertex
+	 * @param cycleCnt number of critical cycles
+	 * @param random the random generator
+	 * @return the generated matrix
+	 */
+	public static PlantedMatrix sparse(int dim, int degree, int cycleCnt, Random random){
+		double eigVal = random.nextInt(21) - 10;
+		Matrix mtx = empty(dim);
+		for(int i=0;i<dim;i++){
+			mtx.setValue(i, (i+1) % dim, eigVal - 1 - random.nextInt(20));
+			for(int d=0;d<degree;d++){
+				mtx.setValue(i, random.nextInt(dim), eigVal - 1 - random.nextInt(20));
+			}
+		}
+		return plant("sparse", mtx, eigVal, 0, 0, dim, cycleCnt, random);
+	}
+
+	/**
+	 * Dense matrix where all the other arcs are lighter only by 1/64,
+	 * so many cycles have almost the same mean as the critical ones.
+	 * @param dim dimension of the matrix
+	 * @param cycleCnt number of critical cycles
+	 * @param random the random generator
+	 * @return the generated matrix
+	 */
+	public static PlantedMatrix nearTied(int dim, int cycleCnt, Random random){
+		double eigVal = random.nextInt(21) - 10;
+		Matrix mtx = new Matrix(dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx.setValue(i, j, eigVal - 1.0 / 64);
+			}
+		}
+		return plant("near-tied", mtx, eigVal, 0, 0, dim, cycleCnt, random);
+	}
+
+	/**
+	 * Reducible matrix - two dense blocks, arcs go only from the first block
+	 * to the second one. The critical cycles are in the first block,
+	 * the second block has a smaller eigenvalue.
+	 * @param dim dimension of the matrix
+	 * @param cycleCnt number of critical cycles
+	 * @param random the random generator
+	 * @return the generated matrix
+	 */
+	public static PlantedMatrix reducible(int dim, int cycleCnt, Random random){
+		double eigVal = random.nextInt(21) - 10;
+		int half = (dim + 1) / 2;
+		Matrix mtx = empty(dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				if(i < half || j >= half){
+					// the second block has cycles of mean at most eigVal - 1
+					mtx.setValue(i, j, eigVal - 1 - random.nextInt(20));
+				}
+			}
+		}
+		return plant("reducible", mtx, eigVal, 0, 0, half, cycleCnt, random);
+	}
+
+	/**
+	 * Dense matrix with a rational eigenvalue - all the critical cycles have
+	 * the given length and integer weights, whose sum is not divisible
+	 * by the length (e.g. 1, 1, 2 for λ = 4/3).
+	 * The weights of a cycle are as even as possible, so any part of it
+	 * is heavier than λ per arc by less than 1, and the other arcs are
+	 * at most λ - 1, so every other cycle has a smaller mean.
+	 * @param dim dimension of the matrix
+	 * @param length length of the critical cycles (at most dim)
+	 * @param cycleCnt number of critical cycles
+	 * @param random the random generator
+	 * @return the generated matrix
+	 */
+	public static PlantedMatrix rational(int dim, int length, int cycleCnt, Random random){
+		int sum;
+		do{
+			sum = random.nextInt(21 * length) - 10 * length;
+		}while(length > 1 && sum % length == 0);
+		double eigVal = (double) sum / length;
+		int other = Math.floorDiv(sum, length) - 1;
+		Matrix mtx = new Matrix(dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx.setValue(i, j, other - random.nextInt(20));
+			}
+		}
+		return plant("rational-" + length, mtx, eigVal, length, 0, dim, cycleCnt, random);
+	}
+
+	/**
+	 * Returns a matrix with all the values ε.
+	 * @param dim dimension of the matrix
+	 * @return the matrix
+	 */
+	private static Matrix empty(int dim){
+		Matrix mtx = new Matrix(dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx.setValue(i, j, Matrix.EPS);
+			}
+		}
+		return mtx;
+	}
+
+	/**
+	 * Plants disjoint cycles of the given length (0 for random lengths 1 to 4)
+	 * with the mean eigVal on random vertices from the given range.
+	 * With s = l*eigVal the arc i of a cycle of length l gets
+	 * floor((i+1)*s/l) - floor(i*s/l), i.e. all the arcs are eigVal if it is an integer.
+	 */
+	private static PlantedMatrix plant(String kind, Matrix mtx, double eigVal, int length,
+			int from, int to, int cycleCnt, Random random){
+		int[] vertices = new int[to - from];
+		for(int i=0;i<vertices.length;i++){
+			vertices[i] = from + i;
+		}
+		// random order of the vertices, the cycles take them one after another
+		for(int i=vertices.length-1;i>0;i--){
+			int j = random.nextInt(i + 1);
+			int temp = vertices[i];
+			vertices[i] = vertices[j];
+			vertices[j] = temp;
+		}
+		cycleCnt = Math.max(1, Math.min(cycleCnt,
+				length == 0 ? vertices.length : vertices.length / length));
+		int[][] cycles = new int[cycleCnt][];
+		int used = 0;
+		for(int c=0;c<cycleCnt;c++){
+			int left = vertices.length - used - (cycleCnt - c - 1);
+			int l = length == 0 ? Math.min(1 + random.nextInt(4), left) : length;
+			long sum = Math.round(eigVal * l);
+			cycles[c] = new int[l];
+			System.arraycopy(vertices, used, cycles[c], 0, l);
+			used += l;
+			for(int i=0;i<l;i++){
+				mtx.setValue(cycles[c][i], cycles[c][(i+1) % l],
+						Math.floorDiv((i + 1) * sum, l) - Math.floorDiv(i * sum, l));
+			}
+		}
+		return new PlantedMatrix(kind, mtx, eigVal, cycles);
+	}
+
+	/**
+	 * Returns the kind of the matrix (dense, sparse, near-tied, reducible,
+	 * rational-3, rational-7).
+	 * @return the kind of the matrix
+	 */
+	public String getKind(){
+		return kind;
+	}
+
+	/**
+	 * Returns the generated matrix.
+	 * @return the matrix
+	 */
+	public Matrix getMatrix(){
+		return matrix;
+	}
+
+	/**
+	 * Returns the planted eigenvalue (the maximal cycle mean).
+	 * @return the eigenvalue
+	 */
+	public double getEigenValue(){
+		return eigenValue;
+	}
+
+	/**
+	 * Returns the planted critical cycles.
+	 * @return the cycles, vertices in the order of the arcs
+	 */
+	public int[][] getCycles(){
+		return cycles;
+	}
+
+	/**
+	 * Returns the number of vertices on the critical cycles,
+	 * it is the number of fundamental vectors.
+	 * @return number of critical vertices
+	 */
+	public int getCriticalVertexCount(){
+		int cnt = 0;
+		for(int[] cycle : cycles){
+			cnt += cycle.length;
+		}
+		return cnt;
+	}
+
+	/**
+	 * Returns the dimension of the eigenspace (number of independent bases).
+	 * @return the dimension of the eigenspace
+	 */
+	public int getEigenSpaceDimension(){
+		return cycles.length;
+	}
+
+	/**
+	 * Checks whether the arc is on a critical cycle.
+	 * @param vertex1 start vertex
+	 * @param vertex2 end vertex
+	 * @return true if the arc is critical, else false
+	 */
+	public boolean isCritical(int vertex1, int vertex2){
+		return critical[vertex1] != null && critical[vertex1][vertex2];
+	}
+}
@@ -0,0 +1,396 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Cache of the results of the analysis of matrices ({@link AnalysisResult}),
+ * so the same matrix is not counted again.
+ * The key is the SHA-256 hash of the semiring, the dimension and all the values
+ * of the matrix, every ε is hashed as {@link Matrix#EPS} and -0 as 0.
+ * The last used results are kept in the memory (LRU), optionally all of them
+ * are saved to files in a directory. The files have a version and a checksum,
+ * old or damaged files are deleted and counted again, files which can not
+ * be read for another reason are only counted again. The files are read
+ * and written as streams, so only the result itself is in the memory.
+ * When more threads ask for the same matrix at once, only the first one
+ * counts it and the others wait for its result.
+ */
+public class ResultCache {
+	private static final int MAGIC = 0x4D504143; // "MPAC"
+	private static final int VERSION = 2;
+
+	private final int capacity;
+	private final File directory;
+	private final LinkedHashMap<String, AnalysisResult> memory;
+	// the results being loaded or counted right now
+	private final HashMap<String, CompletableFuture<AnalysisResult>> pending = new HashMap<>();
+	private long hits, diskHits, misses, evictions, corrupted;
+
+	/**
+	 * Creates a cache kept only in the memory.
+	 * @param capacity the maximal number of results in the memory
+	 */
+	public ResultCache(int capacity){
+		this(capacity, null);
+	}
+
+	/**
+	 * Creates a cache kept in the memory and in the given directory.
+	 * @param capacity the maximal number of results in the memory
+	 * @param directory directory to save the results to, null for none
+	 */
+	public ResultCache(int capacity, File directory){
+		this.capacity = capacity;
+		this.directory = directory;
+		if(directory != null){
+			directory.mkdirs();
+		}
+		memory = new LinkedHashMap<String, AnalysisResult>(16, 0.75f, true){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, AnalysisResult> eldest){
+				if(size() > ResultCache.this.capacity){
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the results of the analysis of the matrix,
+	 * they are counted only if they are not in the cache.
+	 * If another thread is counting the same matrix, it waits for its result
+	 * (it is counted as a hit when the result is there).
+	 * @param mtx the matrix to analyse
+	 * @return the results of the analysis
+	 */
+	public AnalysisResult analyse(Matrix mtx){
+		byte[] key = getKey(mtx);
+		String name = toHex(key);
+		AnalysisResult result;
+		CompletableFuture<AnalysisResult> future;
+
+		synchronized(this){
+			result = memory.get(name);
+			if(result != null){
+				hits++;
+				return result;
+			}
+			future = pending.get(name);
+			if(future == null){
+				pending.put(name, new CompletableFuture<AnalysisResult>());
+			}
+		}
+		if(future != null){
+			try{
+				result = future.join();
+				synchronized(this){
+					hits++;
+				}
+				return result;
+			}catch(CompletionException e){
+				// the thread counting the result failed, the same error is thrown
+				if(e.getCause() instanceof RuntimeException){
+					throw (RuntimeException) e.getCause();
+				}
+				if(e.getCause() instanceof Error){
+					throw (Error) e.getCause();
+				}
+				throw e;
+			}
+		}
+
+		boolean loaded = false;
+		try{
+			result = load(name, key, mtx.getDimension());
+			loaded = result != null;
+			if(!loaded){
+				result = AnalysisResult.analyse(mtx);
+			}
+		}catch(RuntimeException | Error e){
+			synchronized(this){
+				pending.remove(name).completeExceptionally(e);
+			}
+			throw e;
+		}
+		synchronized(this){
+			if(loaded){
+				diskHits++;
+			}else{
+				misses++;
+			}
+			memory.put(name, result);
+			pending.remove(name).complete(result);
+		}
+		if(!loaded){
+			save(name, key, result, mtx.getDimension());
+		}
+		return result;
+	}
+
+	/**
+	 * Counts the key of the matrix - SHA-256 of the semiring,
+	 * the dimension and the values, ε is always hashed as the same value.
+	 * @param mtx the matrix
+	 * @return the hash of the matrix
+	 */
+	public static byte[] getKey(Matrix mtx){
+		MessageDigest digest;
+		try{
+			digest = MessageDigest.getInstance("SHA-256");
+		}catch(NoSuchAlgorithmException e){
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+		Semiring semiring = mtx.getSemiring();
+		int dim = mtx.getDimension();
+		double[][] matrix = mtx.getMatrix();
+		byte[] row = new byte[8 * dim];
+
+		digest.update(semiring.name().getBytes(StandardCharsets.US_ASCII));
+		digest.update(new byte[]{(byte) (dim >>> 24), (byte) (dim >>> 16),
+				(byte) (dim >>> 8), (byte) dim});
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				double value = semiring.isZero(matrix[i][j]) ? semiring.zero() : matrix[i][j];
+				if(value == 0){
+					value = 0; // -0 is the same value
+				}
+				long bits = Double.doubleToLongBits(value);
+				for(int b=0;b<8;b++){
+					row[8*j + b] = (byte) (bits >>> (56 - 8*b));
+				}
+			}
+			digest.update(row);
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Loads the result from its file.
+	 * @param name name of the file (the key in hex)
+	 * @param key the key of the matrix
+	 * @param dim dimension of the matrix
+	 * @return the saved result, null if there is no usable file
+	 */
+	private AnalysisResult load(String name, byte[] key, int dim){
+		if(directory == null){
+			return null;
+		}
+		File file = new File(directory, name);
+		if(!file.isFile()){
+			return null;
+		}
+		try(BufferedInputStream stream = new BufferedInputStream(new FileInputStream(file))){
+			CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+			DataInputStream in = new DataInputStream(checked);
+			byte[] savedKey = new byte[key.length];
+			if(in.readInt() != MAGIC || in.readInt() != VERSION){
+				throw new CorruptedFileException("Unknown format");
+			}
+			in.readFully(savedKey);
+			if(!Arrays.equals(savedKey, key) || in.readInt() != dim){
+				throw new CorruptedFileException("The file belongs to another matrix");
+			}
+			double eigVal = in.readDouble();
+			double[][] closure = new double[dim][dim];
+			for(int i=0;i<dim;i++){
+				for(int j=0;j<dim;j++){
+					closure[i][j] = in.readDouble();
+				}
+			}
+			int cnt = in.readInt();
+			if(cnt < 0 || cnt > dim){
+				throw new CorruptedFileException("Wrong number of bases");
+			}
+			int[] criticalNodes = new int[cnt];
+			int[] labels = new int[cnt];
+			double[][] bases = new double[cnt][dim];
+			for(int i=0;i<cnt;i++){
+				criticalNodes[i] = in.readInt();
+				labels[i] = in.readInt();
+				for(int j=0;j<dim;j++){
+					bases[i][j] = in.readDouble();
+				}
+			}
+			// the checksum itself is not a part of the checked data
+			long crc = checked.getChecksum().getValue();
+			if(new DataInputStream(stream).readLong() != crc || stream.read() != -1){
+				throw new CorruptedFileException("Wrong checksum");
+			}
+			return new AnalysisResult(eigVal, closure,
+					new EigenSpace(bases, criticalNodes, labels));
+		}catch(EOFException | CorruptedFileException e){
+			// old or damaged file, it is counted again
+			synchronized(this){
+				corrupted++;
+			}
+			file.delete();
+			return null;
+		}catch(IOException e){
+			// the file can not be read now, it is kept and the result is counted again
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the result to its file. The file is written under another name
+	 * and then renamed, so a half written file is never read.
+	 * @param name name of the file (the key in hex)
+	 * @param key the key of the matrix
+	 * @param result the result to save
+	 * @param dim dimension of the matrix
+	 */
+	private void save(String name, byte[] key, AnalysisResult result, int dim){
+		if(directory == null){
+			return;
+		}
+		File temp = null;
+		try{
+			temp = File.createTempFile(name, ".tmp", directory);
+			try(BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(temp))){
+				CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+				DataOutputStream out = new DataOutputStream(checked);
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.write(key);
+				out.writeInt(dim);
+				out.writeDouble(result.getEigenValue());
+				for(int i=0;i<dim;i++){
+					for(int j=0;j<dim;j++){
+						out.writeDouble(result.getClosureValue(i, j));
+					}
+				}
+				EigenSpace eigenSpace = result.getEigenSpace();
+				int[] criticalNodes = eigenSpace.getCriticalNodes();
+				int[] labels = eigenSpace.getLabels();
+				out.writeInt(eigenSpace.size());
+				for(int i=0;i<eigenSpace.size();i++){
+					out.writeInt(criticalNodes[i]);
+					out.writeInt(labels[i]);
+					for(int j=0;j<dim;j++){
+						out.writeDouble(eigenSpace.getValueOf(i, j));
+					}
+				}
+				out.flush();
+				new DataOutputStream(stream).writeLong(checked.getChecksum().getValue());
+			}
+			Files.move(temp.toPath(), new File(directory, name).toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}catch(IOException e){
+			// the result stays only in the memory
+			if(temp != null){
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Returns the key as a hexadecimal String.
+	 * @param key the key
+	 * @return the key in hex
+	 */
+	private static String toHex(byte[] key){
+		StringBuilder sb = new StringBuilder(2 * key.length);
+		for(byte b : key){
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the number of results found in the memory.
+	 * @return number of memory hits
+	 */
+	public synchronized long getHits(){
+		return hits;
+	}
+
+	/**
+	 * Returns the number of results loaded from the files.
+	 * @return number of disk hits
+	 */
+	public synchronized long getDiskHits(){
+		return diskHits;
+	}
+
+	/**
+	 * Returns the number of results that had to be counted.
+	 * @return number of misses
+	 */
+	public synchronized long getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Returns the number of results removed from the memory.
+	 * @return number of evictions
+	 */
+	public synchronized long getEvictions(){
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of old or damaged files found.
+	 * @return number of deleted files
+	 */
+	public synchronized long getCorrupted(){
+		return corrupted;
+	}
+
+	/**
+	 * Returns the number of results in the memory.
+	 * @return size of the memory part of the cache
+	 */
+	public synchronized int size(){
+		return memory.size();
+	}
+
+	/**
+	 * Removes all the results from the memory (the files are kept).
+	 */
+	public synchronized void clear(){
+		memory.clear();
+	}
+
+	@Override
+	public synchronized String toString(){
+		return "hits: " + hits + ", disk hits: " + diskHits + ", misses: " + misses
+				+ ", evictions: " + evictions + ", corrupted: " + corrupted;
+	}
+
+	/**
+	 * The file does not hold a result in the expected format
+	 * or its checksum does not match.
+	 */
+	private static class CorruptedFileException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		CorruptedFileException(String message){
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,667 @@
+/**
+ * Semirings the matrix operations can be counted in.
+ * Every semiring has its own kernels for the product of matrices,
+ * the closure and the matrix-vector step, written directly on the
+ * 2d arrays, so there is no call per element in the inner loops.
+ * The zero element (ε) is represented by a big finite value,
+ * values behind the threshold are treated as ε.
+ */
+public enum Semiring {
+
+	/**
+	 * Max-plus algebra (⊕ = max, ⊗ = +), the longest paths.
+	 * This is the algebra the program was made for.
+	 */
+	MAX_PLUS(Matrix.EPS, 0){
+		@Override
+		public boolean isZero(double value){
+			return value < -10000;
+		}
+
+		@Override
+		public double add(double a, double b){
+			return Math.max(a, b);
+		}
+
+		@Override
+		public double times(double a, double b){
+			return a + b;
+		}
+
+		@Override
+		public double[][] multiply(double[][] m1, double[][] m2, int dim){
+			if(dim >= SortedProduct.THRESHOLD){
+				return SortedProduct.multiply(m1, m2, dim);
+			}
+			return multiplyCubic(m1, m2, dim);
+		}
+
+		@Override
+		public double[][] multiplyCubic(double[][] m1, double[][] m2, int dim){
+			double[][] mtx = new double[dim][dim];
+
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] m1Row = m1[i];
+				// the first values of the row, the others are compared to them
+				double a = m1Row[0];
+				double[] m2Row = m2[0];
+				for(int j=0;j<dim;j++){
+					row[j] = a + m2Row[j];
+				}
+				for(int k=1;k<dim;k++){
+					a = m1Row[k];
+					m2Row = m2[k];
+					for(int j=0;j<dim;j++){
+						double value = a + m2Row[j];
+						if(row[j] < value){
+							row[j] = value;
+						}
+					}
+				}
+				for(int j=0;j<dim;j++){
+					if(row[j] < -10000){
+						row[j] = Matrix.EPS;
+					}
+				}
+			}
+			return mtx;
+		}
+
+		@Override
+		public void closure(double[][] mtx, int dim){
+			for(int i=0;i<dim;i++){
+				double[] iRow = mtx[i];
+				for(int k=0;k<dim;k++){
+					if(k == i){
+						continue;
+					}
+					double[] kRow = mtx[k];
+					double ki = kRow[i];
+					for(int j=0;j<dim;j++){
+						if(j != i){
+							kRow[j] = Math.max(kRow[j], ki + iRow[j]);
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public void multiplyVector(double[][] mtx, double[] x, double[] y, int dim){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double max = row[0] + x[0];
+				for(int j=1;j<dim;j++){
+					double value = row[j] + x[j];
+					if(max < value){
+						max = value;
+					}
+				}
+				y[i] = max < -10000 ? Matrix.EPS : max;
+			}
+		}
+
+		@Override
+		public void multiplyVector(double[][] mtx, double[] x, double[] y, int[] arg, int dim){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double max = row[0] + x[0];
+				int best = 0;
+				for(int j=1;j<dim;j++){
+					double value = row[j] + x[j];
+					if(max < value){
+						max = value;
+						best = j;
+					}
+				}
+				y[i] = max < -10000 ? Matrix.EPS : max;
+				arg[i] = best;
+			}
+		}
+
+		@Override
+		public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+				double[] x, double[] y, int[] arg, int dim){
+			for(int i=0;i<dim;i++){
+				double max = Matrix.EPS;
+				int best = 0;
+				for(int p=rowStart[i];p<rowStart[i+1];p++){
+					double value = values[p] + x[cols[p]];
+					if(max < value){
+						max = value;
+						best = cols[p];
+					}
+				}
+				y[i] = max < -10000 ? Matrix.EPS : max;
+				arg[i] = best;
+			}
+		}
+
+		@Override
+		public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+				double[] x, double[] y, int dim){
+			for(int i=0;i<dim;i++){
+				double max = Matrix.EPS;
+				for(int p=rowStart[i];p<rowStart[i+1];p++){
+					double value = values[p] + x[cols[p]];
+					if(max < value){
+						max = value;
+					}
+				}
+				y[i] = max < -10000 ? Matrix.EPS : max;
+			}
+		}
+
+		@Override
+		public void multiplyBlock(double[][] mtx, double[][] x, double[][] y, int dim,
+				int from, int to){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] yRow = y[i];
+				double a = row[0];
+				double[] xRow = x[0];
+				for(int c=from;c<to;c++){
+					yRow[c] = a + xRow[c];
+				}
+				for(int k=1;k<dim;k++){
+					a = row[k];
+					xRow = x[k];
+					for(int c=from;c<to;c++){
+						double value = a + xRow[c];
+						if(yRow[c] < value){
+							yRow[c] = value;
+						}
+					}
+				}
+				for(int c=from;c<to;c++){
+					if(yRow[c] < -10000){
+						yRow[c] = Matrix.EPS;
+					}
+				}
+			}
+		}
+	},
+
+	/**
+	 * Min-plus algebra (⊕ = min, ⊗ = +), the shortest paths.
+	 */
+	MIN_PLUS(-Matrix.EPS, 0){
+		@Override
+		public boolean isZero(double value){
+			return value > 10000;
+		}
+
+		@Override
+		public double add(double a, double b){
+			return Math.min(a, b);
+		}
+
+		@Override
+		public double times(double a, double b){
+			return a + b;
+		}
+
+		@Override
+		public double[][] multiply(double[][] m1, double[][] m2, int dim){
+			if(dim >= SortedProduct.THRESHOLD){
+				return SortedProduct.multiplyMin(m1, m2, dim);
+			}
+			return multiplyCubic(m1, m2, dim);
+		}
+
+		@Override
+		public double[][] multiplyCubic(double[][] m1, double[][] m2, int dim){
+			double[][] mtx = new double[dim][dim];
+
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] m1Row = m1[i];
+				double a = m1Row[0];
+				double[] m2Row = m2[0];
+				for(int j=0;j<dim;j++){
+					row[j] = a + m2Row[j];
+				}
+				for(int k=1;k<dim;k++){
+					a = m1Row[k];
+					m2Row = m2[k];
+					for(int j=0;j<dim;j++){
+						double value = a + m2Row[j];
+						if(row[j] > value){
+							row[j] = value;
+						}
+					}
+				}
+				for(int j=0;j<dim;j++){
+					if(row[j] > 10000){
+						row[j] = -Matrix.EPS;
+					}
+				}
+			}
+			return mtx;
+		}
+
+		@Override
+		public void closure(double[][] mtx, int dim){
+			for(int i=0;i<dim;i++){
+				double[] iRow = mtx[i];
+				for(int k=0;k<dim;k++){
+					double[] kRow = mtx[k];
+					double ki = kRow[i];
+					// no path from k to i, nothing to improve in this row
+					if(k == i || ki > 10000){
+						continue;
+					}
+					for(int j=0;j<dim;j++){
+						if(j != i && iRow[j] <= 10000){
+							kRow[j] = Math.min(kRow[j], ki + iRow[j]);
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public void multiplyVector(double[][] mtx, double[] x, double[] y, int dim){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double min = row[0] + x[0];
+				for(int j=1;j<dim;j++){
+					double value = row[j] + x[j];
+					if(min > value){
+						min = value;
+					}
+				}
+				y[i] = min > 10000 ? -Matrix.EPS : min;
+			}
+		}
+
+		@Override
+		public void multiplyVector(double[][] mtx, double[] x, double[] y, int[] arg, int dim){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double min = row[0] + x[0];
+				int best = 0;
+				for(int j=1;j<dim;j++){
+					double value = row[j] + x[j];
+					if(min > value){
+						min = value;
+						best = j;
+					}
+				}
+				y[i] = min > 10000 ? -Matrix.EPS : min;
+				arg[i] = best;
+			}
+		}
+
+		@Override
+		public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+				double[] x, double[] y, int[] arg, int dim){
+			for(int i=0;i<dim;i++){
+				double min = -Matrix.EPS;
+				int best = 0;
+				for(int p=rowStart[i];p<rowStart[i+1];p++){
+					double value = values[p] + x[cols[p]];
+					if(min > value){
+						min = value;
+						best = cols[p];
+					}
+				}
+				y[i] = min > 10000 ? -Matrix.EPS : min;
+				arg[i] = best;
+			}
+		}
+
+		@Override
+		public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+				double[] x, double[] y, int dim){
+			for(int i=0;i<dim;i++){
+				double min = -Matrix.EPS;
+				for(int p=rowStart[i];p<rowStart[i+1];p++){
+					double value = values[p] + x[cols[p]];
+					if(min > value){
+						min = value;
+					}
+				}
+				y[i] = min > 10000 ? -Matrix.EPS : min;
+			}
+		}
+
+		@Override
+		public void multiplyBlock(double[][] mtx, double[][] x, double[][] y, int dim,
+				int from, int to){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] yRow = y[i];
+				double a = row[0];
+				double[] xRow = x[0];
+				for(int c=from;c<to;c++){
+					yRow[c] = a + xRow[c];
+				}
+				for(int k=1;k<dim;k++){
+					a = row[k];
+					xRow = x[k];
+					for(int c=from;c<to;c++){
+						double value = a + xRow[c];
+						if(yRow[c] > value){
+							yRow[c] = value;
+						}
+					}
+				}
+				for(int c=from;c<to;c++){
+					if(yRow[c] > 10000){
+						yRow[c] = -Matrix.EPS;
+					}
+				}
+			}
+		}
+	},
+
+	/**
+	 * Max-min algebra (⊕ = max, ⊗ = min), the bottleneck (widest) paths.
+	 */
+	MAX_MIN(Matrix.EPS, -Matrix.EPS){
+		@Override
+		public boolean isZero(double value){
+			return value < -10000;
+		}
+
+		@Override
+		public double add(double a, double b){
+			return Math.max(a, b);
+		}
+
+		@Override
+		public double times(double a, double b){
+			return Math.min(a, b);
+		}
+
+		@Override
+		public double[][] multiplyCubic(double[][] m1, double[][] m2, int dim){
+			double[][] mtx = new double[dim][dim];
+
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] m1Row = m1[i];
+				double a = m1Row[0];
+				double[] m2Row = m2[0];
+				for(int j=0;j<dim;j++){
+					row[j] = a < m2Row[j] ? a : m2Row[j];
+				}
+				for(int k=1;k<dim;k++){
+					a = m1Row[k];
+					m2Row = m2[k];
+					for(int j=0;j<dim;j++){
+						double value = a < m2Row[j] ? a : m2Row[j];
+						if(row[j] < value){
+							row[j] = value;
+						}
+					}
+				}
+			}
+			return mtx;
+		}
+
+		@Override
+		public void closure(double[][] mtx, int dim){
+			for(int i=0;i<dim;i++){
+				double[] iRow = mtx[i];
+				for(int k=0;k<dim;k++){
+					double[] kRow = mtx[k];
+					double ki = kRow[i];
+					if(k == i || ki < -10000){
+						continue;
+					}
+					for(int j=0;j<dim;j++){
+						if(j != i){
+							double value = ki < iRow[j] ? ki : iRow[j];
+							if(kRow[j] < value){
+								kRow[j] = value;
+							}
+						}
+					}
+				}
+			}
+		}
+
+		@Override
+		public void multiplyVector(double[][] mtx, double[] x, double[] y, int dim){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double max = row[0] < x[0] ? row[0] : x[0];
+				for(int j=1;j<dim;j++){
+					double value = row[j] < x[j] ? row[j] : x[j];
+					if(max < value){
+						max = value;
+					}
+				}
+				y[i] = max;
+			}
+		}
+
+		@Override
+		public void multiplyBlock(double[][] mtx, double[][] x, double[][] y, int dim,
+				int from, int to){
+			for(int i=0;i<dim;i++){
+				double[] row = mtx[i];
+				double[] yRow = y[i];
+				double a = row[0];
+				double[] xRow = x[0];
+				for(int c=from;c<to;c++){
+					yRow[c] = a < xRow[c] ? a : xRow[c];
+				}
+				for(int k=1;k<dim;k++){
+					a = row[k];
+					xRow = x[k];
+					for(int c=from;c<to;c++){
+						double value = a < xRow[c] ? a : xRow[c];
+						if(yRow[c] < value){
+							yRow[c] = value;
+						}
+					}
+				}
+			}
+		}
+	};
+
+	private final double zero;
+	private final double one;
+
+	Semiring(double zero, double one){
+		this.zero = zero;
+		this.one = one;
+	}
+
+	/**
+	 * Returns the neutral element of ⊕ (ε).
+	 * @return the zero of the semiring
+	 */
+	public double zero(){
+		return zero;
+	}
+
+	/**
+	 * Returns the neutral element of ⊗ (e).
+	 * @return the unit of the semiring
+	 */
+	public double one(){
+		return one;
+	}
+
+	/**
+	 * Checks whether the value stands for ε in this semiring.
+	 * @param value value to check
+	 * @return true if the value is treated as ε, else false
+	 */
+	public abstract boolean isZero(double value);
+
+	/**
+	 * Counts a ⊕ b.
+	 * @param a first operand
+	 * @param b second operand
+	 * @return the sum in the semiring
+	 */
+	public abstract double add(double a, double b);
+
+	/**
+	 * Counts a ⊗ b.
+	 * @param a first operand
+	 * @param b second operand
+	 * @return the product in the semiring
+	 */
+	public abstract double times(double a, double b);
+
+	/**
+	 * Multiplies 2 matrices. For big matrices a faster product
+	 * is used where the semiring has one ({@link SortedProduct}).
+	 * @param m1 the multiplicand matrix
+	 * @param m2 the multiplier matrix
+	 * @param dim dimension of the matrices
+	 * @return new matrix m1*m2
+	 */
+	public double[][] multiply(double[][] m1, double[][] m2, int dim){
+		return multiplyCubic(m1, m2, dim);
+	}
+
+	/**
+	 * Multiplies 2 matrices by the definition, counting all the n^3 products.
+	 * @param m1 the multiplicand matrix
+	 * @param m2 the multiplier matrix
+	 * @param dim dimension of the matrices
+	 * @return new matrix m1*m2
+	 */
+	public abstract double[][] multiplyCubic(double[][] m1, double[][] m2, int dim);
+
+	/**
+	 * Floyd-Warshall algorithm in this semiring. Rewrites the given matrix
+	 * with the weights of the best paths between every two vertices.
+	 * @param mtx the matrix to count the closure of, it is overwritten
+	 * @param dim dimension of the matrix
+	 */
+	public abstract void closure(double[][] mtx, int dim);
+
+	/**
+	 * Counts y = mtx*x without allocating anything.
+	 * @param mtx the matrix
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 * @param dim dimension of the matrix
+	 */
+	public abstract void multiplyVector(double[][] mtx, double[] x, double[] y, int dim);
+
+	/**
+	 * Counts y = mtx*x and saves for every row the index of the column
+	 * the result was taken from (the first one when more are equal).
+	 * It is counted by {@link #add} and {@link #times}, the semirings
+	 * used by {@link KarpAlgorithm} have faster versions.
+	 * @param mtx the matrix
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 * @param arg the array to save the indices to
+	 * @param dim dimension of the matrix
+	 */
+	public void multiplyVector(double[][] mtx, double[] x, double[] y, int[] arg, int dim){
+		for(int i=0;i<dim;i++){
+			double[] row = mtx[i];
+			double sum = times(row[0], x[0]);
+			int best = 0;
+			for(int j=1;j<dim;j++){
+				double value = times(row[j], x[j]);
+				if(add(sum, value) != sum){
+					sum = value;
+					best = j;
+				}
+			}
+			y[i] = isZero(sum) ? zero : sum;
+			arg[i] = best;
+		}
+	}
+
+	/**
+	 * Counts the columns from ... to-1 of Y = A*X, where every column of X
+	 * is one vector. X and Y are saved row by row (x[k][c] is the value of the
+	 * vertex k in the vector c), so a row of A is read once for all the vectors
+	 * and the inner loop goes through a row of X.
+	 * @param mtx the matrix A
+	 * @param x the vectors X, dim rows
+	 * @param y the matrix to save the result to, dim rows
+	 * @param dim dimension of the matrix
+	 * @param from the first column to count
+	 * @param to the column after the last one to count
+	 */
+	public abstract void multiplyBlock(double[][] mtx, double[][] x, double[][] y, int dim,
+			int from, int to);
+
+	/**
+	 * Counts y = A*x for a matrix given only by its values different from ε,
+	 * row by row (the values of the row i are at rowStart[i] ... rowStart[i+1]-1).
+	 * For every row the index of the column the result was taken from is saved.
+	 * It is counted by {@link #add} and {@link #times}, the semirings
+	 * used by {@link KarpAlgorithm} have faster versions.
+	 * @param rowStart where the rows start, dim+1 values
+	 * @param cols the columns of the values
+	 * @param values the values of the matrix
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 * @param arg the array to save the indices to
+	 * @param dim dimension of the matrix
+	 */
+	public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+			double[] x, double[] y, int[] arg, int dim){
+		for(int i=0;i<dim;i++){
+			double sum = zero;
+			int best = 0;
+			for(int p=rowStart[i];p<rowStart[i+1];p++){
+				double value = times(values[p], x[cols[p]]);
+				if(add(sum, value) != sum){
+					sum = value;
+					best = cols[p];
+				}
+			}
+			y[i] = isZero(sum) ? zero : sum;
+			arg[i] = best;
+		}
+	}
+
+	/**
+	 * Counts y = A*x for a matrix given only by its values different from ε,
+	 * like {@link #multiplySparse(int[], int[], double[], double[], double[], int[], int)}
+	 * without saving the columns.
+	 * @param rowStart where the rows start, dim+1 values
+	 * @param cols the columns of the values
+	 * @param values the values of the matrix
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 * @param dim dimension of the matrix
+	 */
+	public void multiplySparse(int[] rowStart, int[] cols, double[] values,
+			double[] x, double[] y, int dim){
+		for(int i=0;i<dim;i++){
+			double sum = zero;
+			for(int p=rowStart[i];p<rowStart[i+1];p++){
+				sum = add(sum, times(values[p], x[cols[p]]));
+			}
+			y[i] = isZero(sum) ? zero : sum;
+		}
+	}
+
+	/**
+	 * Counts the given power of the matrix by repeated multiplication.
+	 * @param matrix 2d array to count the power of
+	 * @param power the power to count
+	 * @param dim dimension of the matrix
+	 * @return the powered matrix
+	 */
+	public double[][] power(double[][] matrix, int power, int dim){
+		double[][] poweredMatrix = new double[dim][dim];
+
+		for(int h=0;h<power-1;h++){
+			if(h == 0){
+				poweredMatrix = multiply(matrix, matrix, dim);
+			}else{
+				poweredMatrix = multiply(poweredMatrix, matrix, dim);
+			}
+		}
+		return poweredMatrix;
+	}
+}
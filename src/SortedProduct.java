@@ -0,0 +1,204 @@
+/**
+ * Product of big dense matrices in the max-plus algebra.
+ * Every row of the multiplicand is sorted, so the candidates
+ * m1[i][k] + m2[k][j] are visited from the biggest m1[i][k].
+ * A column j is finished as soon as m1[i][k] + (maximum of the column j)
+ * can not beat the value found so far, so for the usual matrices
+ * most of the k are never visited and the work is far below n^3.
+ * For matrices where the pruning does not help (e.g. the biggest values
+ * of the rows meet the smallest values of the columns) the visited
+ * candidates are counted and the rest of the rows is multiplied
+ * by the cubic kernel, so the product is never much slower than the cubic one.
+ * The result is the same as of the cubic product.
+ */
+public class SortedProduct {
+	/** Dimension from which the sorted product is used instead of the cubic one. */
+	static final int THRESHOLD = 192;
+	/** Number of rows after which the visited candidates are checked. */
+	private static final int SAMPLE = 8;
+	/** The sorted rows are used while at most 1/LIMIT of the candidates is visited. */
+	private static final int LIMIT = 4;
+
+	/**
+	 * Multiplies 2 matrices in the max-plus algebra.
+	 * @param m1 the multiplicand matrix
+	 * @param m2 the multiplier matrix
+	 * @param dim dimension of the matrices
+	 * @return new matrix m1*m2
+	 */
+	public static double[][] multiply(double[][] m1, double[][] m2, int dim){
+		double[][] mtx = new double[dim][dim];
+		double[] colMax = new double[dim];
+		int[] order = new int[dim];
+		int[] active = new int[dim];
+
+		System.arraycopy(m2[0], 0, colMax, 0, dim);
+		for(int k=1;k<dim;k++){
+			double[] m2Row = m2[k];
+			for(int j=0;j<dim;j++){
+				if(colMax[j] < m2Row[j]){
+					colMax[j] = m2Row[j];
+				}
+			}
+		}
+
+		long visited = 0;
+		for(int i=0;i<dim;i++){
+			double[] row = mtx[i];
+			double[] m1Row = m1[i];
+			// the pruning does not pay off, the sort and the jumps cost more
+			if(i % SAMPLE == 0 && i > 0 && visited > (long) i * dim * dim / LIMIT){
+				for(;i<dim;i++){
+					multiplyRow(m1[i], m2, mtx[i], dim);
+				}
+				break;
+			}
+			for(int j=0;j<dim;j++){
+				order[j] = j;
+				active[j] = j;
+				row[j] = Double.NEGATIVE_INFINITY;
+			}
+			sortDescending(m1Row, order, 0, dim - 1);
+
+			int activeCnt = dim;
+			for(int t=0;t<dim && activeCnt > 0;t++){
+				int k = order[t];
+				double a = m1Row[k];
+				double[] m2Row = m2[k];
+				int kept = 0;
+				for(int q=0;q<activeCnt;q++){
+					int j = active[q];
+					// no other k can give more than the current value
+					if(a + colMax[j] <= row[j]){
+						continue;
+					}
+					double value = a + m2Row[j];
+					if(row[j] < value){
+						row[j] = value;
+					}
+					active[kept++] = j;
+				}
+				visited += activeCnt;
+				activeCnt = kept;
+			}
+			for(int j=0;j<dim;j++){
+				if(row[j] < -10000){
+					row[j] = Matrix.EPS;
+				}
+			}
+		}
+		return mtx;
+	}
+
+	/**
+	 * Counts one row of the product by the cubic kernel
+	 * of {@link Semiring#MAX_PLUS}.
+	 * @param m1Row the row of the multiplicand matrix
+	 * @param m2 the multiplier matrix
+	 * @param row the row of the product to count
+	 * @param dim dimension of the matrices
+	 */
+	private static void multiplyRow(double[] m1Row, double[][] m2, double[] row, int dim){
+		double a = m1Row[0];
+		double[] m2Row = m2[0];
+		for(int j=0;j<dim;j++){
+			row[j] = a + m2Row[j];
+		}
+		for(int k=1;k<dim;k++){
+			a = m1Row[k];
+			m2Row = m2[k];
+			for(int j=0;j<dim;j++){
+				double value = a + m2Row[j];
+				if(row[j] < value){
+					row[j] = value;
+				}
+			}
+		}
+		for(int j=0;j<dim;j++){
+			if(row[j] < -10000){
+				row[j] = Matrix.EPS;
+			}
+		}
+	}
+
+	/**
+	 * Multiplies 2 matrices in the min-plus algebra.
+	 * It is the max-plus product of the negated matrices, negated back.
+	 * @param m1 the multiplicand matrix
+	 * @param m2 the multiplier matrix
+	 * @param dim dimension of the matrices
+	 * @return new matrix m1*m2
+	 */
+	public static double[][] multiplyMin(double[][] m1, double[][] m2, int dim){
+		double[][] mtx = multiply(negate(m1, dim), negate(m2, dim), dim);
+
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx[i][j] = -mtx[i][j];
+			}
+		}
+		return mtx;
+	}
+
+	/**
+	 * Returns a new matrix with all the values negated.
+	 * @param matrix matrix to negate
+	 * @param dim dimension of the matrix
+	 * @return the negated matrix
+	 */
+	private static double[][] negate(double[][] matrix, int dim){
+		double[][] mtx = new double[dim][dim];
+
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				mtx[i][j] = -matrix[i][j];
+			}
+		}
+		return mtx;
+	}
+
+	/**
+	 * Sorts the indices by their values from the biggest one (quicksort).
+	 * @param values the values the indices point to
+	 * @param order the indices to sort
+	 * @param from the first position to sort
+	 * @param to the last position to sort
+	 */
+	private static void sortDescending(double[] values, int[] order, int from, int to){
+		while(to - from > 16){
+			double pivot = values[order[(from + to) >>> 1]];
+			int i = from, j = to;
+			while(i <= j){
+				while(values[order[i]] > pivot){
+					i++;
+				}
+				while(values[order[j]] < pivot){
+					j--;
+				}
+				if(i <= j){
+					int temp = order[i];
+					order[i++] = order[j];
+					order[j--] = temp;
+				}
+			}
+			// recursion on the smaller part, loop on the bigger one
+			if(j - from < to - i){
+				sortDescending(values, order, from, j);
+				from = i;
+			}else{
+				sortDescending(values, order, i, to);
+				to = j;
+			}
+		}
+		for(int i=from+1;i<=to;i++){
+			int index = order[i];
+			double value = values[index];
+			int j = i - 1;
+			while(j >= from && values[order[j]] < value){
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = index;
+		}
+	}
+}
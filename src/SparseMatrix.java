@@ -0,0 +1,84 @@
+/**
+ * Matrix given only by its values different from ε, row by row
+ * (compressed rows). The values of the row i are at
+ * rowStart[i] ... rowStart[i+1]-1, so multiplying a vector visits
+ * only the arcs of the graph, O(m) instead of O(n^2).
+ * It is used by {@link KarpAlgorithm} for sparse matrices and by
+ * {@link EigenVectorSolver} for the definite matrix.
+ */
+public class SparseMatrix {
+	private final int dim;
+	private final Semiring semiring;
+	private final int[] rowStart;
+	private final int[] cols;
+	private final double[] values;
+
+	/**
+	 * Saves the values of the matrix different from ε.
+	 * @param mtx the matrix
+	 * @param eigVal the value subtracted from every saved value
+	 * (the eigenvalue for the definite matrix, else 0)
+	 */
+	public SparseMatrix(Matrix mtx, double eigVal){
+		double[][] matrix = mtx.getMatrix();
+		int cnt = count(mtx);
+
+		dim = mtx.getDimension();
+		semiring = mtx.getSemiring();
+		rowStart = new int[dim+1];
+		cols = new int[cnt];
+		values = new double[cnt];
+		cnt = 0;
+		for(int i=0;i<dim;i++){
+			rowStart[i] = cnt;
+			for(int j=0;j<dim;j++){
+				if(!semiring.isZero(matrix[i][j])){
+					cols[cnt] = j;
+					values[cnt++] = matrix[i][j] - eigVal;
+				}
+			}
+		}
+		rowStart[dim] = cnt;
+	}
+
+	/**
+	 * Counts the values of the matrix different from ε (the arcs of the graph).
+	 * @param mtx the matrix
+	 * @return number of the arcs
+	 */
+	public static int count(Matrix mtx){
+		double[][] matrix = mtx.getMatrix();
+		Semiring semiring = mtx.getSemiring();
+		int dim = mtx.getDimension();
+		int cnt = 0;
+
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				if(!semiring.isZero(matrix[i][j])){
+					cnt++;
+				}
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * Counts y = A*x.
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 */
+	public void multiply(double[] x, double[] y){
+		semiring.multiplySparse(rowStart, cols, values, x, y, dim);
+	}
+
+	/**
+	 * Counts y = A*x and saves for every row the index of the column
+	 * the result was taken from.
+	 * @param x the vector to multiply
+	 * @param y the vector to save the result to, must not be x
+	 * @param arg the array to save the indices to
+	 */
+	public void multiply(double[] x, double[] y, int[] arg){
+		semiring.multiplySparse(rowStart, cols, values, x, y, arg, dim);
+	}
+}
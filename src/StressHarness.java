@@ -0,0 +1,343 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Random;
+
+/**
+ * Scaling and correctness test of the algorithms on generated matrices
+ * with a known eigenvalue ({@link PlantedMatrix}).
+ * For every kind of matrix and every dimension it runs the Karps algorithm,
+ * the Floyd-Warshall algorithm, the strongly transitive closure, the bases
+ * and the eigenvector, checks the results against the planted ones,
+ * compares the fast matrix product with the cubic one and prints
+ * the time and the allocated memory of every step as CSV:
+ * kind,n,step,ms,allocated bytes,result
+ * A step is skipped when it would take longer than the time budget
+ * (estimated from the smaller dimensions) or when it ran out of memory.
+ * The generation of the matrix is measured the same way, it is skipped
+ * with all the steps when it does not fit or when all the steps
+ * of the kind were skipped for a smaller dimension.
+ *
+ * Usage: java StressHarness [max dimension] [budget in seconds] [seed]
+ */
+public class StressHarness {
+	private static final int[] DIMENSIONS = {10, 30, 100, 300, 1000, 3000, 10000};
+	private static final String[] KINDS = {"dense", "sparse", "near-tied", "reducible",
+			"rational-3", "rational-7"};
+	private static final String[] STEPS = {"karp", "fw", "bases", "eigenvector", "strtc",
+			"product"};
+
+	private final double budget;
+	private final Random random;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	// the last time of the step (kind + step) and the dimension it was measured for
+	private final HashMap<String, double[]> lastTimes = new HashMap<>();
+	private int failures;
+
+	/**
+	 * Creates the harness.
+	 * @param budget the maximal time of one step in seconds
+	 * @param seed seed of the random generator
+	 */
+	public StressHarness(double budget, long seed){
+		this.budget = budget;
+		this.random = new Random(seed);
+	}
+
+	public static void main(String[] args){
+		int maxDim = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		double budget = args.length > 1 ? Double.parseDouble(args[1]) : 30;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 2017;
+
+		StressHarness harness = new StressHarness(budget, seed);
+		System.out.println("kind,n,step,ms,allocated bytes,result");
+		for(int dim : DIMENSIONS){
+			if(dim > maxDim){
+				break;
+			}
+			for(String kind : KINDS){
+				harness.run(kind, dim);
+			}
+		}
+		System.out.println("failures: " + harness.failures);
+		if(harness.failures > 0){
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Generates a matrix of the given kind.
+	 * @param kind the kind of the matrix
+	 * @param dim dimension of the matrix
+	 * @return the generated matrix
+	 */
+	public PlantedMatrix generate(String kind, int dim){
+		int cycleCnt = 1 + random.nextInt(Math.max(1, dim / 10));
+		switch(kind){
+		case "sparse":
+			return PlantedMatrix.sparse(dim, 4, cycleCnt, random);
+		case "near-tied":
+			return PlantedMatrix.nearTied(dim, cycleCnt, random);
+		case "reducible":
+			return PlantedMatrix.reducible(dim, cycleCnt, random);
+		case "rational-3":
+			return PlantedMatrix.rational(dim, 3, cycleCnt, random);
+		case "rational-7":
+			return PlantedMatrix.rational(dim, Math.min(7, dim), cycleCnt, random);
+		default:
+			return PlantedMatrix.dense(dim, cycleCnt, random);
+		}
+	}
+
+	/**
+	 * Generates the matrix if it fits the budget and runs all the steps on it.
+	 * @param kind the kind of the matrix
+	 * @param dim dimension of the matrix
+	 */
+	public void run(final String kind, final int dim){
+		final PlantedMatrix[] planted = new PlantedMatrix[1];
+
+		if(allSkipped(kind)){
+			lastTimes.put(kind + "/generate", new double[]{-1, dim});
+			print(kind, dim, "generate", 0, 0, "SKIP");
+			return;
+		}
+		step(kind, dim, "generate", 2, new Step(){
+			public String run(){
+				planted[0] = generate(kind, dim);
+				return null;
+			}
+		});
+		if(planted[0] != null){
+			run(planted[0]);
+		}
+	}
+
+	/**
+	 * Checks whether all the steps of the kind were skipped
+	 * for a smaller dimension, then they would be skipped again.
+	 * @param kind the kind of the matrix
+	 * @return true if all the steps were skipped, else false
+	 */
+	private boolean allSkipped(String kind){
+		for(String name : STEPS){
+			double[] last = lastTimes.get(kind + "/" + name);
+			if(last == null || last[0] >= 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs all the steps on the matrix and prints the results.
+	 * @param planted the generated matrix
+	 */
+	public void run(final PlantedMatrix planted){
+		final Matrix mtx = planted.getMatrix();
+		final int dim = mtx.getDimension();
+		final double eigVal = planted.getEigenValue();
+		final double[][][] wtc = new double[1][][];
+
+		step(planted, "karp", 3, new Step(){
+			public String run(){
+				KarpResult result = new KarpAlgorithm(mtx).getResult();
+				if(!equal(result.getEigenValue(), eigVal)){
+					return "eigenvalue " + result.getEigenValue() + " instead of " + eigVal;
+				}
+				int[] cycle = result.getCycle();
+				for(int i=0;i<cycle.length;i++){
+					if(!planted.isCritical(cycle[i], cycle[(i+1) % cycle.length])){
+						return "the cycle " + result + " is not critical";
+					}
+				}
+				return cycle.length == 0 ? "no critical cycle" : null;
+			}
+		});
+		step(planted, "fw", 3, new Step(){
+			public String run(){
+				wtc[0] = mtx.getFWMatrix();
+				int cnt = mtx.getFundVectors(wtc[0]).size();
+				if(cnt != planted.getCriticalVertexCount()){
+					return cnt + " fundamental vectors instead of " + planted.getCriticalVertexCount();
+				}
+				return null;
+			}
+		});
+		step(planted, "bases", 2, new Step(){
+			public String run(){
+				if(wtc[0] == null){
+					return "skipped";
+				}
+				int cnt = mtx.getBases(mtx.getFundVectors(wtc[0])).size();
+				if(cnt != planted.getEigenSpaceDimension()){
+					return cnt + " bases instead of " + planted.getEigenSpaceDimension();
+				}
+				return null;
+			}
+		});
+		step(planted, "eigenvector", 3, new Step(){
+			public String run(){
+				double[] vector = mtx.getEigenVector();
+				if(vector == null || !mtx.isEigenVector(vector, eigVal)){
+					return "not an eigenvector";
+				}
+				return null;
+			}
+		});
+		step(planted, "strtc", 4, new Step(){
+			public String run(){
+				if(wtc[0] == null || dim < 3){
+					return "skipped";
+				}
+				double[][] stc = mtx.getStrTC();
+				for(int i=0;i<dim;i++){
+					for(int j=0;j<dim;j++){
+						if(i != j && !equal(stc[i][j], wtc[0][i][j])){
+							return "differs from the Floyd-Warshall matrix at " + i + "," + j;
+						}
+					}
+				}
+				return null;
+			}
+		});
+		step(planted, "product", 3, new Step(){
+			public String run(){
+				if(dim < SortedProduct.THRESHOLD){
+					return "skipped";
+				}
+				double[][] matrix = mtx.getMatrix();
+				// the negated matrix has ε = 100000, the zero of the min-plus algebra
+				double[][] negated = new double[dim][dim];
+				for(int i=0;i<dim;i++){
+					for(int j=0;j<dim;j++){
+						negated[i][j] = -matrix[i][j];
+					}
+				}
+				String result = compare(Semiring.MAX_PLUS, matrix, dim);
+				return result != null ? result : compare(Semiring.MIN_PLUS, negated, dim);
+			}
+		});
+	}
+
+	/**
+	 * Compares the product of the semiring with the cubic one.
+	 * @param semiring the semiring to multiply in
+	 * @param matrix the matrix to square
+	 * @param dim dimension of the matrix
+	 * @return null if the products are the same, else the description of the error
+	 */
+	private static String compare(Semiring semiring, double[][] matrix, int dim){
+		double[][] product = semiring.multiply(matrix, matrix, dim);
+		double[][] cubic = semiring.multiplyCubic(matrix, matrix, dim);
+		for(int i=0;i<dim;i++){
+			for(int j=0;j<dim;j++){
+				if(product[i][j] != cubic[i][j]){
+					return semiring + " product differs from the cubic one at " + i + "," + j;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * One checked step of the analysis.
+	 */
+	private interface Step {
+		/**
+		 * Runs the step.
+		 * @return null if the result is right, else the description of the error
+		 */
+		String run();
+	}
+
+	/**
+	 * Runs the step if it fits the time budget, measures it and prints the line.
+	 * @param planted the generated matrix
+	 * @param name name of the step
+	 * @param exponent the expected growth of the time (n^exponent)
+	 * @param step the step to run
+	 */
+	private void step(PlantedMatrix planted, String name, int exponent, Step step){
+		step(planted.getKind(), planted.getMatrix().getDimension(), name, exponent, step);
+	}
+
+	/**
+	 * Runs the step if it fits the time budget, measures it and prints the line.
+	 * @param kind the kind of the matrix
+	 * @param dim dimension of the matrix
+	 * @param name name of the step
+	 * @param exponent the expected growth of the time (n^exponent)
+	 * @param step the step to run
+	 */
+	private void step(String kind, int dim, String name, int exponent, Step step){
+		String key = kind + "/" + name;
+		double[] last = lastTimes.get(key);
+
+		if(last != null && (last[0] < 0
+				|| last[0] * Math.pow((double) dim / last[1], exponent) > budget * 1000)){
+			lastTimes.put(key, new double[]{-1, dim});
+			print(kind, dim, name, 0, 0, "SKIP");
+			return;
+		}
+		long threadId = Thread.currentThread().getId();
+		long bytes = allocatedBytes(threadId);
+		long start = System.nanoTime();
+		String result;
+		try{
+			result = step.run();
+		}catch(OutOfMemoryError e){
+			lastTimes.put(key, new double[]{-1, dim});
+			print(kind, dim, name, 0, 0, "OOM");
+			return;
+		}catch(RuntimeException e){
+			result = e.toString();
+		}
+		double ms = (System.nanoTime() - start) / 1e6;
+		long allocated = allocatedBytes(threadId) - bytes;
+
+		lastTimes.put(key, new double[]{Math.max(ms, 0.001), dim});
+		if(result == null){
+			result = "OK";
+		}else if(!result.equals("skipped")){
+			failures++;
+			result = "FAIL: " + result;
+		}
+		print(kind, dim, name, ms, allocated, result);
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the thread so far.
+	 * @param threadId id of the thread
+	 * @return allocated bytes, -1 if it is not supported
+	 */
+	private long allocatedBytes(long threadId){
+		if(threads instanceof com.sun.management.ThreadMXBean){
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+		}
+		return -1;
+	}
+
+	private void print(String kind, int dim, String name, double ms, long allocated,
+			String result){
+		System.out.printf("%s,%d,%s,%.3f,%d,%s%n", kind, dim, name, ms, allocated, result);
+	}
+
+	/**
+	 * Compares two values with a small tolerance, all the values ε are equal.
+	 */
+	private static boolean equal(double a, double b){
+		if(a < -10000 || b < -10000){
+			return a < -10000 && b < -10000;
+		}
+		return Matrix.isSame(a, b);
+	}
+
+	/**
+	 * Returns the number of failed steps so far.
+	 * @return number of failed steps
+	 */
+	public int getFailures(){
+		return failures;
+	}
+}